@@ -0,0 +1,51 @@
+package api;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import model.Course;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import util.BenchmarkCourses;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Benchmarks of the serialization of course listings, as done by GET /api/courses.
+ */
+@State(Scope.Benchmark)
+public class CourseSerializationBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    private Gson gson;
+    private List<Course> courses;
+
+    @Setup
+    public void createCourses() {
+        gson = new GsonBuilder().disableHtmlEscaping().create();
+        courses = BenchmarkCourses.catalog(size);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return gson.toJson(courses);
+    }
+
+    @Benchmark
+    public void toJsonStream() throws IOException {
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8))) {
+            gson.toJson(courses, writer);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package dao;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import model.Course;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.sql2o.Sql2o;
+import util.BenchmarkCourses;
+import util.Database;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Benchmarks of the dao.Sql2oCourseDao reads against an embedded PostgreSQL server.
+ */
+@State(Scope.Benchmark)
+public class Sql2oCourseDaoBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    private EmbeddedPostgres postgres;
+    private HikariDataSource dataSource;
+    private CourseDao courseDao;
+    private List<Course> courses;
+
+    @Setup(Level.Trial)
+    public void startDatabase() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        // Pool the connections as util.Database does, so the benchmarks do not measure connecting.
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(postgres.getJdbcUrl("postgres", "postgres"));
+        Sql2o sql2o = new Sql2o(dataSource);
+        courses = BenchmarkCourses.catalog(size);
+        Database.createCoursesTableWithSampleData(sql2o, courses);
+        courseDao = new Sql2oCourseDao(sql2o);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDatabase() throws IOException {
+        dataSource.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public Course read() {
+        return courseDao.read(courses.get(ThreadLocalRandom.current().nextInt(size)).getOfferingName());
+    }
+
+    @Benchmark
+    public List<Course> readAll() {
+        return courseDao.readAll();
+    }
+
+    @Benchmark
+    public List<Course> readAllByTitle() {
+        return courseDao.readAll("learning");
+    }
+}
@@ -0,0 +1,56 @@
+package search;
+
+import dao.CourseDao;
+import dao.InMemoryCourseDao;
+import model.Course;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import util.BenchmarkCourses;
+
+import java.util.List;
+
+/**
+ * Benchmarks of the in-memory title searches, along with the scan they replace.
+ */
+@State(Scope.Benchmark)
+public class TitleSearchBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    private CourseDao courseDao;
+    private TitleIndex titleIndex;
+    private RankedCourseSearch rankedSearch;
+    private CourseSuggester courseSuggester;
+
+    @Setup
+    public void buildIndexes() {
+        courseDao = new InMemoryCourseDao(BenchmarkCourses.catalog(size));
+        titleIndex = TitleIndex.build(courseDao);
+        rankedSearch = RankedCourseSearch.build(courseDao);
+        courseSuggester = CourseSuggester.build(courseDao);
+    }
+
+    @Benchmark
+    public List<Course> scan() {
+        return courseDao.readPage("machine learn", null, 50);
+    }
+
+    @Benchmark
+    public List<Course> titleIndex() {
+        return titleIndex.search("machine learn", null, 50);
+    }
+
+    @Benchmark
+    public List<Course> rankedSearch() {
+        return rankedSearch.search("machine lerning", 10);
+    }
+
+    @Benchmark
+    public List<Course> suggest() {
+        return courseSuggester.suggest("machine le", 10);
+    }
+}
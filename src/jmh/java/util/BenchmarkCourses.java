@@ -0,0 +1,51 @@
+package util;
+
+import model.Course;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A utility class to create catalogs of made-up courses for the benchmarks.
+ */
+public final class BenchmarkCourses {
+
+    private static final int MAX_TITLE_LENGTH = 50;
+    private static final String[] DEPARTMENTS = {"EN.500", "EN.520", "EN.553", "EN.580", "EN.601", "AS.110"};
+    private static final String[] WORDS = {
+        "Data", "Structures", "Machine", "Learning", "Computer", "Systems", "Intro", "Algorithms", "Software",
+        "Engineering", "Databases", "Networks", "Security", "Theory", "Computation", "Graphics", "Vision",
+        "Programming", "Languages", "Distributed", "Operating", "Models", "Robotics", "Statistics", "Signals",
+        "Linear", "Algebra", "Probability", "Advanced", "Topics", "Seminar", "Design", "Analysis", "Parallel",
+    };
+
+    private BenchmarkCourses() {
+        // This class should not be instantiated.
+    }
+
+    /**
+     * Create a catalog of made-up courses; the same size always gives the same catalog.
+     *
+     * @param size The number of courses.
+     * @return a list of size courses with distinct offering names, ordered by offering name, that fit in the
+     *     courses table.
+     */
+    public static List<Course> catalog(int size) {
+        Random random = new Random(size);
+        List<Course> courses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String offeringName = String.format("%s.%06d", DEPARTMENTS[i * DEPARTMENTS.length / size], i);
+            StringBuilder title = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+            for (int words = 1 + random.nextInt(4); words > 0; words--) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                if (title.length() + 1 + word.length() > MAX_TITLE_LENGTH) {
+                    break;
+                }
+                title.append(' ').append(word);
+            }
+            courses.add(new Course(offeringName, title.toString()));
+        }
+        return courses;
+    }
+}
@@ -0,0 +1,318 @@
+package api;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import model.Course;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import spark.Spark;
+import util.Database;
+import util.Env;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the API at a constant request rate and reports its throughput and latency as JSON.
+ * <p>
+ * Requests are sent on a fixed schedule whether or not earlier ones have completed (an open loop), and latency is
+ * measured from the time a request was scheduled rather than the time it was sent. A server that stalls is
+ * therefore charged for all the requests that queue up behind the stall, which a closed loop would not send
+ * (coordinated omission).
+ * </p>
+ * <p>
+ * Unless LOAD_TEST_URL points to a running server, api.Server is started in this process, with the usual
+ * DATABASE_URL, COURSE_STORE, ... environment variables, after seeding its database with util.Database. The
+ * test then adds LOAD_TEST_COURSES courses through POST /api/courses:batch, and runs for LOAD_TEST_WARMUP_SECONDS,
+ * which are not measured, then LOAD_TEST_DURATION_SECONDS at LOAD_TEST_RATE requests per second. LOAD_TEST_MIX
+ * weighs the operations, e.g. "read=60,list=10,search=20,create=5,update=5". Searches use the ranked search (?q=),
+ * which a server on a database only has with COURSE_RANKED_SEARCH_ENABLED or COURSE_CHANGE_NOTIFICATIONS.
+ * </p>
+ */
+public final class LoadTest {
+
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int SEED_BATCH_SIZE = 1000;
+    private static final String[] WORDS = {
+        "Data", "Structures", "Machine", "Learning", "Computer", "Systems", "Intro", "Algorithms", "Software",
+        "Engineering", "Databases", "Networks", "Security", "Theory", "Computation", "Graphics", "Vision",
+        "Programming", "Languages", "Distributed", "Operating", "Models", "Robotics", "Statistics",
+    };
+
+    private final Gson gson = new Gson();
+    private final HttpClient client;
+    private final String baseUrl;
+    private final Map<Operation, Integer> mix;
+    private final List<String> offeringNames = new ArrayList<>();
+    private final AtomicLong created = new AtomicLong(System.currentTimeMillis() % 10000 * 100_000_000L);
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    private final Stats total = new Stats();
+    private final AtomicLong lastResponse = new AtomicLong();
+
+    private LoadTest(HttpClient client, String baseUrl, Map<Operation, Integer> mix) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.mix = mix;
+        for (Operation operation : mix.keySet()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rate = Env.getInt("LOAD_TEST_RATE", 200);
+        int warmupSeconds = Env.getInt("LOAD_TEST_WARMUP_SECONDS", 5);
+        int durationSeconds = Env.getInt("LOAD_TEST_DURATION_SECONDS", 30);
+        int courses = Env.getInt("LOAD_TEST_COURSES", 1000);
+        String mix = Env.getString("LOAD_TEST_MIX", "read=60,list=10,search=20,create=5,update=5");
+        Path output = Paths.get(Env.getString("LOAD_TEST_OUTPUT", "build/reports/loadtest/results.json"));
+
+        String baseUrl = Env.getString("LOAD_TEST_URL", null);
+        boolean startServer = baseUrl == null;
+        if (startServer) {
+            if (!"memory".equalsIgnoreCase(Env.getString("COURSE_STORE", "postgres"))) {
+                Database.main(new String[0]);
+            }
+            Server.main(null);
+            Spark.awaitInitialization();
+            baseUrl = "http://localhost:" + Spark.port();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Env.getInt("LOAD_TEST_THREADS", 8));
+        HttpClient client = HttpClient.newBuilder()
+                .executor(executor)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        try {
+            LoadTest loadTest = new LoadTest(client, baseUrl, parseMix(mix));
+            loadTest.seed(courses);
+            double elapsedSeconds = loadTest.run(rate, warmupSeconds, durationSeconds);
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("url", baseUrl);
+            report.put("targetRate", rate);
+            report.put("durationSeconds", durationSeconds);
+            report.put("elapsedSeconds", elapsedSeconds);
+            report.put("courses", courses);
+            report.put("mix", mix);
+            report.put("total", loadTest.total.report(elapsedSeconds));
+            Map<String, Object> operations = new LinkedHashMap<>();
+            loadTest.stats.forEach((operation, stats) ->
+                    operations.put(operation.name().toLowerCase(Locale.ROOT), stats.report(elapsedSeconds)));
+            report.put("operations", operations);
+
+            String json = new GsonBuilder().setPrettyPrinting().create().toJson(report);
+            if (output.getParent() != null) {
+                Files.createDirectories(output.getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+                writer.write(json);
+            }
+            System.out.println(json);
+        } finally {
+            executor.shutdownNow();
+            if (startServer) {
+                Server.stop();
+            }
+        }
+        System.exit(0);
+    }
+
+    // Add made-up courses to the catalog, for the read and update operations to pick from.
+    private void seed(int count) throws IOException, InterruptedException {
+        Random random = new Random(count);
+        List<Course> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Course course = new Course(String.format("LT.%012d", i), title(random));
+            offeringNames.add(course.getOfferingName());
+            batch.add(course);
+            if (batch.size() == SEED_BATCH_SIZE || i == count - 1) {
+                HttpResponse<String> response = client.send(request("/api/courses:batch")
+                        .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(batch))).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException("Unable to seed the courses: " + response.body());
+                }
+                batch.clear();
+            }
+        }
+        if (offeringNames.isEmpty()) {
+            offeringNames.add("EN.601.226");
+        }
+    }
+
+    // Send requests on schedule for the warmup and the measured duration, then wait for the last responses; return
+    // the seconds from the end of the warmup to the last response.
+    private double run(int rate, int warmupSeconds, int durationSeconds)
+            throws InterruptedException, TimeoutException {
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measuredFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measuredFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        Random random = new Random();
+        Phaser inFlight = new Phaser(1);
+        for (long i = 0; ; i++) {
+            long scheduled = start + i * interval;
+            if (scheduled >= end) {
+                break;
+            }
+            for (long wait = scheduled - System.nanoTime(); wait > 0; wait = scheduled - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = pick(random);
+            HttpRequest request = operation.request(this, random);
+            boolean measured = scheduled >= measuredFrom;
+            inFlight.register();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, ex) -> {
+                // Measure from the scheduled time, so requests sent late because of a stall are charged for it.
+                long now = System.nanoTime();
+                long latency = TimeUnit.NANOSECONDS.toMicros(now - scheduled);
+                lastResponse.accumulateAndGet(now, Math::max);
+                if (measured) {
+                    boolean ok = ex == null && response.statusCode() < 400;
+                    stats.get(operation).record(latency, ok);
+                    total.record(latency, ok);
+                }
+                inFlight.arriveAndDeregister();
+            });
+        }
+        inFlight.awaitAdvanceInterruptibly(inFlight.arrive(), 1, TimeUnit.MINUTES);
+        return (Math.max(end, lastResponse.get()) - measuredFrom) / 1e9;
+    }
+
+    private Operation pick(Random random) {
+        int weights = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int choice = random.nextInt(weights);
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            choice -= entry.getValue();
+            if (choice < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("No operation to pick");
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30));
+    }
+
+    private String randomOfferingName(Random random) {
+        return offeringNames.get(random.nextInt(offeringNames.size()));
+    }
+
+    private static String title(Random random) {
+        return WORDS[random.nextInt(WORDS.length)] + ' ' + WORDS[random.nextInt(WORDS.length)];
+    }
+
+    // Parse a mix like "read=60,search=40" into the weight of each operation.
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] nameAndWeight = part.trim().split("=");
+            if (nameAndWeight.length != 2) {
+                throw new IllegalArgumentException("LOAD_TEST_MIX must look like read=60,search=40");
+            }
+            int weight = Integer.parseInt(nameAndWeight[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.valueOf(nameAndWeight[0].trim().toUpperCase(Locale.ROOT)), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("LOAD_TEST_MIX has no operation with a positive weight");
+        }
+        return weights;
+    }
+
+    // The requests the load test can send.
+    private enum Operation {
+        READ {
+            @Override
+            HttpRequest request(LoadTest test, Random random) {
+                return test.request("/api/courses/" + test.randomOfferingName(random)).GET().build();
+            }
+        },
+        LIST {
+            @Override
+            HttpRequest request(LoadTest test, Random random) {
+                return test.request("/api/courses?limit=50").GET().build();
+            }
+        },
+        SEARCH {
+            @Override
+            HttpRequest request(LoadTest test, Random random) {
+                String query = URLEncoder.encode(title(random).toLowerCase(Locale.ROOT), StandardCharsets.UTF_8);
+                return test.request("/api/courses?q=" + query).GET().build();
+            }
+        },
+        CREATE {
+            @Override
+            HttpRequest request(LoadTest test, Random random) {
+                Course course = new Course(String.format("LC.%012d", test.created.incrementAndGet()), title(random));
+                return test.request("/api/courses")
+                        .POST(HttpRequest.BodyPublishers.ofString(test.gson.toJson(course))).build();
+            }
+        },
+        UPDATE {
+            @Override
+            HttpRequest request(LoadTest test, Random random) {
+                Course course = new Course(test.randomOfferingName(random), title(random));
+                return test.request("/api/courses/" + course.getOfferingName())
+                        .PUT(HttpRequest.BodyPublishers.ofString(test.gson.toJson(course))).build();
+            }
+        };
+
+        abstract HttpRequest request(LoadTest test, Random random);
+    }
+
+    // The latencies and errors of the measured requests of an operation.
+    private static final class Stats {
+        private final Histogram latencies = new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3);
+        private final LongAdder errors = new LongAdder();
+
+        private void record(long latencyMicros, boolean ok) {
+            latencies.recordValue(Math.min(latencyMicros, HIGHEST_LATENCY_MICROS));
+            if (!ok) {
+                errors.increment();
+            }
+        }
+
+        private Map<String, Object> report(double elapsedSeconds) {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("requests", latencies.getTotalCount());
+            report.put("errors", errors.sum());
+            report.put("throughput", latencies.getTotalCount() / elapsedSeconds);
+            Map<String, Double> latencyMillis = new LinkedHashMap<>();
+            latencyMillis.put("mean", latencies.getMean() / 1000);
+            latencyMillis.put("p50", latencies.getValueAtPercentile(50) / 1000.0);
+            latencyMillis.put("p99", latencies.getValueAtPercentile(99) / 1000.0);
+            latencyMillis.put("p999", latencies.getValueAtPercentile(99.9) / 1000.0);
+            latencyMillis.put("max", latencies.getMaxValue() / 1000.0);
+            report.put("latencyMillis", latencyMillis);
+            return report;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package dao;
+
+import com.google.gson.GsonBuilder;
+import model.Course;
+import util.Env;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Measures the heap taken by the same courses in a dao.InMemoryCourseDao and in a dao.CompactCourseDao, and reports
+ * it as JSON along with the size the dao.CompactCourseCatalog estimates for itself (its "bytes" statistic).
+ * <p>
+ * FOOTPRINT_COURSES synthetic courses are generated with offeringNames like the real ones and titles made of four
+ * words out of a few dozen, so that titles repeat as they do across the sections of a catalog. Each store is built
+ * on its own, and the heap it takes is the heap in use after a full collection once it is built, less the heap in
+ * use before. ./gradlew courseStoreFootprint runs it with a heap large enough for the default million courses.
+ * </p>
+ */
+public final class CourseStoreFootprint {
+
+    private static final String[] SCHOOLS = {"AS", "EN", "ME", "PH"};
+    private static final String[] WORDS = {
+        "Data", "Structures", "Machine", "Learning", "Computer", "Systems", "Intro", "Algorithms", "Software",
+        "Engineering", "Databases", "Networks", "Security", "Theory", "Computation", "Graphics", "Vision",
+        "Programming", "Languages", "Distributed", "Operating", "Models", "Robotics", "Statistics",
+    };
+
+    private CourseStoreFootprint() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int courses = Env.getInt("FOOTPRINT_COURSES", 1_000_000);
+        Path output = Paths.get(Env.getString("FOOTPRINT_OUTPUT", "build/reports/footprint/results.json"));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("courses", courses);
+        report.put("inMemoryHeapBytes", measure(courses, InMemoryCourseDao::new));
+        CompactCourseDao[] compact = new CompactCourseDao[1];
+        report.put("compactHeapBytes", measure(courses, generated -> compact[0] = new CompactCourseDao(generated)));
+        report.put("catalog", compact[0].getStats());
+
+        String json = new GsonBuilder().setPrettyPrinting().create().toJson(report);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            writer.write(json);
+        }
+        System.out.println(json);
+    }
+
+    // Get the heap taken by the store built from the generated courses, once the courses themselves are unreachable.
+    private static long measure(int courses, Function<List<Course>, CourseDao> build) {
+        long before = usedHeap();
+        CourseDao store = build.apply(generate(courses));
+        long used = usedHeap() - before;
+        if (store.read("EN.000.000") == null) { // keeps the store reachable until measured
+            throw new IllegalStateException("The generated courses were not stored");
+        }
+        return used;
+    }
+
+    // Generate courses with distinct offeringNames and titles of four random words.
+    private static List<Course> generate(int courses) {
+        Random random = new Random(42);
+        List<Course> generated = new ArrayList<>(courses);
+        for (int i = 0; i < courses; i++) {
+            int number = i / SCHOOLS.length;
+            StringBuilder title = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+            for (int word = 1; word < 4; word++) {
+                title.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            generated.add(new Course(String.format("%s.%03d.%03d", SCHOOLS[i % SCHOOLS.length], number / 1000,
+                    number % 1000), title.toString()));
+        }
+        return generated;
+    }
+
+    // Get the heap in use after collecting the garbage, as far as System.gc() can be made to.
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
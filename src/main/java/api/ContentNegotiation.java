@@ -0,0 +1,127 @@
+package api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A utility class to read the media types and content codings a client accepts, from its Accept and
+ * Accept-Encoding request headers, and to apply the gzip content coding.
+ */
+public final class ContentNegotiation {
+
+    /**
+     * The media type of JSON responses.
+     */
+    public static final String JSON = "application/json";
+
+    /**
+     * The name of the gzip content coding, as used in the Accept-Encoding and Content-Encoding headers.
+     */
+    public static final String GZIP = "gzip";
+
+    private ContentNegotiation() {
+        // This class should not be instantiated.
+    }
+
+    /**
+     * Get the quality a client gives to a media type, from the most specific media range of its Accept header
+     * that matches it.
+     *
+     * @param accept The value of the Accept header; may be null, in which case every media type is acceptable.
+     * @param mediaType The media type, e.g. application/json, without parameters.
+     * @return the quality, from 0 (not acceptable) to 1.
+     */
+    public static double mediaTypeQuality(String accept, String mediaType) {
+        if (accept == null || accept.isBlank()) {
+            return 1;
+        }
+        String anySubtype = mediaType.substring(0, mediaType.indexOf('/') + 1) + "*";
+        double quality = 0;
+        int specificity = -1;
+        for (String range : accept.split(",")) {
+            String[] params = range.split(";");
+            String name = params[0].trim().toLowerCase(Locale.ROOT);
+            int matched;
+            if (name.equals(mediaType)) {
+                matched = 2;
+            } else if (name.equals(anySubtype)) {
+                matched = 1;
+            } else if (name.equals("*/*")) {
+                matched = 0;
+            } else {
+                continue;
+            }
+            if (matched > specificity) {
+                specificity = matched;
+                quality = parseQuality(params);
+            }
+        }
+        return quality;
+    }
+
+    /**
+     * Get the quality a client gives to a content coding in its Accept-Encoding header.
+     *
+     * @param acceptEncoding The value of the Accept-Encoding header; may be null, in which case only the identity
+     *     coding is used.
+     * @param coding The content coding, e.g. gzip.
+     * @return the quality, from 0 (not acceptable) to 1.
+     */
+    public static double encodingQuality(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return 0;
+        }
+        double quality = 0;
+        boolean exact = false;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] params = entry.split(";");
+            String name = params[0].trim().toLowerCase(Locale.ROOT);
+            if (name.equals(coding)) {
+                quality = parseQuality(params);
+                exact = true;
+            } else if (name.equals("*") && !exact) {
+                quality = parseQuality(params);
+            }
+        }
+        return quality;
+    }
+
+    /**
+     * Compress data with the gzip content coding.
+     *
+     * @param data The data to compress.
+     * @param level The compression level, from Deflater.BEST_SPEED to Deflater.BEST_COMPRESSION.
+     * @return the compressed data.
+     */
+    public static byte[] gzip(byte[] data, int level) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            out.write(data);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Get the q parameter of a media range or coding, 1 when it has none and 0 when it is malformed.
+    private static double parseQuality(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim().toLowerCase(Locale.ROOT);
+            if (param.startsWith("q=")) {
+                try {
+                    return Math.max(0, Math.min(1, Double.parseDouble(param.substring(2))));
+                } catch (NumberFormatException ex) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
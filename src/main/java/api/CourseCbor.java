@@ -0,0 +1,90 @@
+package api;
+
+import model.Course;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A utility class to encode courses in CBOR (RFC 8949), a binary counterpart of their JSON representation.
+ * <p>
+ * A list of courses is encoded as an array of maps keyed by the same names as in JSON, so a client decodes either
+ * representation into the same objects. Like Gson, the encoding leaves out the fields that are null.
+ * </p>
+ */
+public final class CourseCbor {
+
+    /**
+     * The media type of CBOR responses.
+     */
+    public static final String CONTENT_TYPE = "application/cbor";
+
+    // The keys match the @SerializedName of the fields of model.Course.
+    private static final byte[] OFFERING_NAME = "Offering Name".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TITLE = "Title".getBytes(StandardCharsets.UTF_8);
+
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+
+    private CourseCbor() {
+        // This class should not be instantiated.
+    }
+
+    /**
+     * Encode a list of courses.
+     *
+     * @param courses The courses to encode.
+     * @return the CBOR array of the courses.
+     */
+    public static byte[] encode(List<Course> courses) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(courses.size() * 64 + 16);
+        writeHead(out, MAJOR_ARRAY, courses.size());
+        for (Course course : courses) {
+            String offeringName = course.getOfferingName();
+            String title = course.getTitle();
+            writeHead(out, MAJOR_MAP, (offeringName == null ? 0 : 1) + (title == null ? 0 : 1));
+            if (offeringName != null) {
+                writeText(out, OFFERING_NAME);
+                writeText(out, offeringName.getBytes(StandardCharsets.UTF_8));
+            }
+            if (title != null) {
+                writeText(out, TITLE);
+                writeText(out, title.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeText(ByteArrayOutputStream out, byte[] utf8) {
+        writeHead(out, MAJOR_TEXT, utf8.length);
+        out.writeBytes(utf8);
+    }
+
+    // Write the initial byte of a data item, followed by its length in the fewest bytes that hold it.
+    private static void writeHead(ByteArrayOutputStream out, int majorType, long length) {
+        int major = majorType << 5;
+        if (length < 24) {
+            out.write(major | (int) length);
+        } else if (length < 0x100) {
+            out.write(major | 24);
+            out.write((int) length);
+        } else if (length < 0x10000) {
+            out.write(major | 25);
+            writeBigEndian(out, length, 2);
+        } else if (length < 0x100000000L) {
+            out.write(major | 26);
+            writeBigEndian(out, length, 4);
+        } else {
+            out.write(major | 27);
+            writeBigEndian(out, length, 8);
+        }
+    }
+
+    private static void writeBigEndian(ByteArrayOutputStream out, long value, int size) {
+        for (int shift = (size - 1) * 8; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package api;
+
+import com.google.gson.Gson;
+import dao.CourseChangeListener;
+import dao.CourseDao;
+import exceptions.DaoException;
+import model.Course;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.Deflater;
+
+/**
+ * The representations of all the courses, serialized once and reused until a course changes.
+ * <p>
+ * The listing is serialized to JSON when it is built; its CBOR encoding and the gzip compressed forms of both are
+ * built the first time a client asks for them, then kept along with it.
+ * </p>
+ */
+public class CourseListingSnapshot implements CourseChangeListener {
+
+    private final CourseDao courseDao;
+    private final Gson gson;
+    private final int minCompressedSize;
+    private final AtomicLong version = new AtomicLong();
+    private final Lock rebuild = new ReentrantLock(); // held while the listing is built
+    private volatile Listing listing;
+
+    /**
+     * Construct api.CourseListingSnapshot.
+     *
+     * @param courseDao The dao.CourseDao to read the courses from.
+     * @param gson The Gson object used to serialize the courses.
+     * @param minCompressedSize The size, in bytes, under which a representation is not worth compressing.
+     */
+    public CourseListingSnapshot(CourseDao courseDao, Gson gson, int minCompressedSize) {
+        this.courseDao = courseDao;
+        this.gson = gson;
+        this.minCompressedSize = minCompressedSize;
+    }
+
+    /**
+     * Get the current listing if it is built, without reading the courses.
+     *
+     * @return the current listing, or null if a course has changed since it was last built.
+     */
+    public Listing getIfBuilt() {
+        return listing;
+    }
+
+    /**
+     * Get the current listing, serializing the courses again if one has changed since the last call.
+     *
+     * @return the current listing.
+     * @throws DaoException A generic exception for CRUD operations.
+     */
+    public Listing get() throws DaoException {
+        Listing current = listing;
+        if (current != null) {
+            return current;
+        }
+        // A lock rather than a monitor: a virtual thread waiting for the listing, or reading the courses while
+        // holding it, parks instead of pinning its carrier thread.
+        rebuild.lock();
+        try {
+            current = listing;
+            if (current != null) {
+                return current;
+            }
+            long readVersion = version.get();
+            List<Course> courses = courseDao.readAll();
+            current = new Listing(courses, serialize(courses), minCompressedSize);
+            // A course changed while the listing was being built; serve it but build it again next time.
+            if (readVersion == version.get()) {
+                listing = current;
+            }
+            return current;
+        } finally {
+            rebuild.unlock();
+        }
+    }
+
+    @Override
+    public void courseChanged(String offeringName, Course course) {
+        version.incrementAndGet();
+        listing = null;
+    }
+
+    private byte[] serialize(List<Course> courses) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(bytes, StandardCharsets.UTF_8)) {
+            gson.toJson(courses, writer);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * A listing of all the courses, with its representations.
+     */
+    public static final class Listing {
+        private final List<Course> courses;
+        private final Variant json;
+        private final int minCompressedSize;
+        private final Map<String, Variant> variants = new ConcurrentHashMap<>();
+
+        private Listing(List<Course> courses, byte[] json, int minCompressedSize) {
+            this.courses = courses;
+            this.json = new Variant(json, computeEtag(json), ContentNegotiation.JSON, null);
+            this.minCompressedSize = minCompressedSize;
+        }
+
+        /**
+         * Get the representation of the listing that best suits what a client accepts: CBOR if it prefers it to
+         * JSON, and compressed with gzip if it accepts it and the listing is large enough.
+         *
+         * @param accept The value of the Accept header; may be null.
+         * @param acceptEncoding The value of the Accept-Encoding header; may be null.
+         * @return the representation.
+         */
+        public Variant negotiate(String accept, String acceptEncoding) {
+            boolean cbor = ContentNegotiation.mediaTypeQuality(accept, CourseCbor.CONTENT_TYPE)
+                    > ContentNegotiation.mediaTypeQuality(accept, ContentNegotiation.JSON);
+            boolean gzip = ContentNegotiation.encodingQuality(acceptEncoding, ContentNegotiation.GZIP) > 0;
+            return getVariant(cbor ? CourseCbor.CONTENT_TYPE : ContentNegotiation.JSON, gzip);
+        }
+
+        /**
+         * Get a representation of the listing, building it the first time it is asked for.
+         *
+         * @param contentType Either application/json or application/cbor.
+         * @param gzip Whether to compress the representation with gzip; it is not if it is too small.
+         * @return the representation.
+         */
+        public Variant getVariant(String contentType, boolean gzip) {
+            Variant identity = contentType.equals(CourseCbor.CONTENT_TYPE) ? getCbor() : json;
+            if (!gzip || identity.body.length < minCompressedSize) {
+                return identity;
+            }
+            return variants.computeIfAbsent(contentType + '+' + ContentNegotiation.GZIP,
+                    key -> identity.derive(ContentNegotiation.gzip(identity.body, Deflater.BEST_COMPRESSION),
+                            ContentNegotiation.GZIP, identity.contentType, ContentNegotiation.GZIP));
+        }
+
+        private Variant getCbor() {
+            return variants.computeIfAbsent(CourseCbor.CONTENT_TYPE,
+                    type -> json.derive(CourseCbor.encode(courses), "cbor", type, null));
+        }
+
+        private static String computeEtag(byte[] body) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+                StringBuilder etag = new StringBuilder("\"");
+                for (int i = 0; i < 16; i++) {
+                    etag.append(String.format("%02x", digest[i]));
+                }
+                return etag.append('"').toString();
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+
+    /**
+     * A serialized representation of the listing along with its entity tag.
+     */
+    public static final class Variant {
+        private final byte[] body;
+        private final String etag;
+        private final String contentType;
+        private final String contentEncoding;
+
+        private Variant(byte[] body, String etag, String contentType, String contentEncoding) {
+            this.body = body;
+            this.etag = etag;
+            this.contentType = contentType;
+            this.contentEncoding = contentEncoding;
+        }
+
+        // Build another representation of the same listing; its entity tag is this one's with a suffix.
+        private Variant derive(byte[] body, String suffix, String contentType, String contentEncoding) {
+            String tag = etag.substring(0, etag.length() - 1) + '-' + suffix + '"';
+            return new Variant(body, tag, contentType, contentEncoding);
+        }
+
+        /**
+         * Get the encoded listing.
+         *
+         * @return the body of the representation; callers must not modify it.
+         */
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * Get the strong entity tag of the representation, derived from the content of the listing.
+         *
+         * @return the quoted entity tag.
+         */
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * Get the media type of the representation.
+         *
+         * @return the value of the Content-Type header.
+         */
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * Get the content coding of the representation.
+         *
+         * @return the value of the Content-Encoding header, or null if the representation is not compressed.
+         */
+        public String getContentEncoding() {
+            return contentEncoding;
+        }
+
+        /**
+         * Check whether an If-None-Match request header matches this representation.
+         *
+         * @param ifNoneMatch The value of the If-None-Match header; may be null.
+         * @return true if the client already has this representation.
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package api;
+
+import exceptions.ApiError;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * A utility class to convert between the offeringName a page of courses ends at and the opaque cursor
+ * clients pass back in the "after" query parameter.
+ */
+public final class PageCursor {
+
+    private PageCursor() {
+        // This class should not be instantiated.
+    }
+
+    /**
+     * Encode an offeringName into a cursor.
+     *
+     * @param offeringName The alphanumeric code of the last course of a page.
+     * @return the cursor.
+     */
+    public static String encode(String offeringName) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(offeringName.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor into an offeringName.
+     *
+     * @param cursor A cursor created by encode; may be null.
+     * @return the offeringName, or null if cursor is null.
+     * @throws ApiError if the cursor is malformed.
+     */
+    public static String decode(String cursor) throws ApiError {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new ApiError("Invalid cursor", 400);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package api;
+
+import spark.Request;
+import spark.Response;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Lets a client read its own writes when reads are served by read replicas that may lag the primary database.
+ * <p>
+ * A response to a write sets a short-lived cookie holding the time until which the client should read from the
+ * primary; while a request carries that cookie, its reads skip the replicas. The time is signed with a secret key, so
+ * a client cannot make up a cookie, e.g. one that would send all its reads to the primary for good; a cookie that is
+ * missing, expired or not signed with the key leaves the reads on the replicas. Instances behind the same load
+ * balancer need the same key to accept each other's cookies.
+ * </p>
+ */
+public class ReadYourWrites {
+
+    /**
+     * The name of the cookie holding the time, in milliseconds since the epoch, until which to read from the primary,
+     * followed by its signature, e.g. 1700000000000.kxY3...
+     */
+    public static final String COOKIE = "read-primary-until";
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final boolean enabled;
+    private final Duration window;
+    private final SecretKeySpec key;
+
+    /**
+     * Construct api.ReadYourWrites.
+     *
+     * @param enabled Whether reads may be served by replicas at all; if not, no cookie is set.
+     * @param window How long after a write the client reads from the primary; longer than the replication lag.
+     * @param secret The key the cookies are signed with, shared by the instances; null for a random one.
+     */
+    public ReadYourWrites(boolean enabled, Duration window, String secret) {
+        this.enabled = enabled;
+        this.window = window;
+        byte[] keyBytes = new byte[32];
+        if (secret != null) {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        } else {
+            new SecureRandom().nextBytes(keyBytes);
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+    }
+
+    /**
+     * Record that the client has written, so it reads from the primary for a while.
+     *
+     * @param res The response to the write.
+     */
+    public void written(Response res) {
+        if (enabled) {
+            String value = cookieValue(System.currentTimeMillis() + window.toMillis());
+            res.cookie("/", COOKIE, value, (int) Math.max(1, window.getSeconds()), false, true);
+        }
+    }
+
+    /**
+     * Tell whether the client has written recently enough to read from the primary.
+     *
+     * @param req The request to read for.
+     * @return true if the reads for req should be served by the primary.
+     */
+    public boolean readPrimary(Request req) {
+        return enabled && readPrimary(req.cookie(COOKIE), System.currentTimeMillis());
+    }
+
+    // Get the value of the cookie telling to read from the primary until a time.
+    String cookieValue(long until) {
+        String time = Long.toString(until);
+        return time + '.' + sign(time);
+    }
+
+    // Tell whether a cookie value (possibly null) is signed with the key and tells to read from the primary at now.
+    boolean readPrimary(String cookie, long now) {
+        if (cookie == null) {
+            return false;
+        }
+        int dot = cookie.indexOf('.');
+        if (dot < 0) {
+            return false;
+        }
+        String time = cookie.substring(0, dot);
+        byte[] signature = cookie.substring(dot + 1).getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(sign(time).getBytes(StandardCharsets.UTF_8), signature)) {
+            return false;
+        }
+        try {
+            return now < Long.parseLong(time);
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    // Sign a text with the key.
+    private String sign(String text) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(mac.doFinal(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Unable to sign with " + ALGORITHM, ex);
+        }
+    }
+}
@@ -2,28 +2,191 @@ package api;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import dao.AsyncCourseDao;
+import dao.BatchingCourseDao;
+import dao.CachingCourseDao;
+import dao.CompactCourseDao;
+import dao.CourseChangeSubscriber;
+import dao.CourseChanges;
 import dao.CourseDao;
+import dao.InMemoryCourseDao;
+import dao.ObservableCourseDao;
+import dao.ReplicaRoutingCourseDao;
+import dao.SingleFlightCourseDao;
 import dao.Sql2oCourseDao;
+import dao.TimedCourseDao;
+import dao.UpsertOutcome;
 import exceptions.ApiError;
 import exceptions.DaoException;
+import exceptions.DaoOverloadedException;
+import metrics.JvmMetrics;
+import metrics.PrometheusWriter;
+import metrics.RequestMetrics;
 import model.Course;
+import org.eclipse.jetty.server.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sql2o.Sql2o;
+import search.CourseSuggester;
+import search.DaoTitleSearch;
+import search.RankedCourseSearch;
+import search.TitleIndex;
+import search.TitleSearch;
 import spark.Spark;
+import util.DataStore;
+import util.Database;
+import util.Env;
 
-import java.net.URI;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.Deflater;
 
 import static spark.Spark.*;
 
 public class Server {
+    private static final Logger LOG = LoggerFactory.getLogger(Server.class);
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int DEFAULT_SEARCH_RESULTS = 10;
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final int DEFAULT_SUGGESTIONS = 10;
+    private static final int MAX_SUGGESTIONS = 100;
+    private static final int MAX_BATCH_SIZE = 10000;
+    private static final int MAX_IDS = 1000;
+    private static final int MAX_OFFERING_NAME_LENGTH = 15;
+    private static final int MAX_TITLE_LENGTH = 50;
+    private static final List<String> COURSE_FIELDS = List.of("offeringName", "title");
+
     public static void main(String[] args) throws URISyntaxException {
         port(getHerokuAssignedPort());
+        if ("virtual".equalsIgnoreCase(Env.getString("SERVER_THREADS", "platform"))) {
+            VirtualThreadPool.install();
+        }
 
         Gson gson = new GsonBuilder().disableHtmlEscaping().create();
-        CourseDao courseDao = getCourseDao();
+        String courseStore = Env.getString("COURSE_STORE", "postgres");
+        boolean compact = "compact".equalsIgnoreCase(courseStore);
+        boolean inMemory = compact || "memory".equalsIgnoreCase(courseStore);
+        Sql2o sql2o = inMemory ? null : Database.getSql2o();
+        int fetchSize = Env.getInt("COURSE_LISTING_FETCH_SIZE", 500);
+        CourseDao primaryStore = inMemory ? getInMemoryCourseDao(compact) : new Sql2oCourseDao(sql2o, fetchSize);
+        List<CourseDao> replicaStores = new ArrayList<>();
+        String replicaUrls = inMemory ? null : Env.getString("DATABASE_REPLICA_URLS", null);
+        if (replicaUrls != null) {
+            for (String replicaUrl : replicaUrls.split(",")) {
+                if (!replicaUrl.isBlank()) {
+                    Sql2o replica = Database.getSql2o(replicaUrl.trim(), "courses-replica-" + replicaStores.size());
+                    replicaStores.add(new Sql2oCourseDao(replica, fetchSize));
+                }
+            }
+        }
+        boolean singleFlight = Env.getBoolean("COURSE_SINGLE_FLIGHT_ENABLED", true);
+        // With replicas, the calls to the primary are timed (as target="primary") and coalesced on their own. The
+        // router writes through them, so a read of the primary never joins one that started before a write.
+        TimedCourseDao primaryTimedCourseDao = new TimedCourseDao(primaryStore, "primary");
+        SingleFlightCourseDao primarySingleFlightCourseDao = new SingleFlightCourseDao(primaryTimedCourseDao);
+        ReplicaRoutingCourseDao replicaRouting = replicaStores.isEmpty() ? null : new ReplicaRoutingCourseDao(
+                singleFlight ? primarySingleFlightCourseDao : primaryTimedCourseDao, replicaStores,
+                Duration.ofMillis(Env.getLong("DATABASE_REPLICA_HEALTH_CHECK_MS", 5000)));
+        if (replicaRouting != null) {
+            replicaRouting.start();
+        }
+        TimedCourseDao timedCourseDao = replicaRouting != null
+                ? new TimedCourseDao(replicaRouting, "routed")
+                : new TimedCourseDao(primaryStore);
+        List<TimedCourseDao> timedCourseDaos = replicaRouting != null
+                ? List.of(timedCourseDao, primaryTimedCourseDao)
+                : List.of(timedCourseDao);
+        BatchingCourseDao batchingCourseDao = new BatchingCourseDao(timedCourseDao,
+                Duration.ofMillis(Env.getLong("COURSE_READ_BATCH_WINDOW_MS", 1)),
+                Env.getInt("COURSE_READ_BATCH_MAX_SIZE", 100));
+        CourseDao lookupCourseDao = Env.getBoolean("COURSE_READ_BATCHING_ENABLED", false)
+                ? batchingCourseDao
+                : timedCourseDao;
+        // Reads that must see the latest writes skip the replicas, the cache and the batching of reads.
+        CourseDao primaryCourseDao = replicaRouting != null ? replicaRouting.getPrimary() : lookupCourseDao;
+        SingleFlightCourseDao singleFlightCourseDao = new SingleFlightCourseDao(lookupCourseDao);
+        CourseDao storeCourseDao = singleFlight ? singleFlightCourseDao : lookupCourseDao;
+        // The cache is filled from the primary, so the stale value of a replica lagging behind a write is not cached.
+        CourseDao cacheLoader = replicaRouting != null ? primaryCourseDao : storeCourseDao;
+        CachingCourseDao cachingCourseDao = new CachingCourseDao(storeCourseDao, cacheLoader,
+                Env.getInt("COURSE_CACHE_MAX_SIZE", 10000),
+                Duration.ofSeconds(Env.getLong("COURSE_CACHE_TTL_SECONDS", 60)));
+        ObservableCourseDao courseDao = new ObservableCourseDao(
+                Env.getBoolean("COURSE_CACHE_ENABLED", false) ? cachingCourseDao : storeCourseDao);
+        // With other instances writing to the same database, their writes are applied here as they are notified.
+        CourseChangeSubscriber courseChanges = !inMemory && Env.getBoolean("COURSE_CHANGE_NOTIFICATIONS", false)
+                ? new CourseChangeSubscriber(Database.getUnpooledDataSource(), primaryCourseDao, courseDao,
+                        cachingCourseDao)
+                : null;
+        if (courseChanges != null) {
+            courseChanges.start();
+        }
+        // Responses smaller than this are sent uncompressed, since gzip would save little or nothing on them.
+        int minCompressedSize = Env.getInt("COMPRESSION_MIN_BYTES", 1024);
+        CourseListingSnapshot courseListing = new CourseListingSnapshot(primaryCourseDao, gson, minCompressedSize);
+        courseDao.addListener(courseListing);
+        // A compact store keeps the courses out of the object graph, which the indexes would build again, so it
+        // searches its catalog instead unless an index is asked for.
+        TitleSearch titleSearch = getTitleSearch(courseDao, inMemory && !compact ? "index" : "database");
+        // Like the title index, the indexes below are kept up to date by the writes this instance sees, so they are
+        // only built by default when it sees them all: in memory (but not compact, as above), or when notified of the
+        // writes of other instances.
+        boolean localIndexes = !compact && (inMemory || courseChanges != null);
+        RankedCourseSearch rankedSearch = Env.getBoolean("COURSE_RANKED_SEARCH_ENABLED", localIndexes)
+                ? RankedCourseSearch.build(courseDao)
+                : null;
+        if (rankedSearch != null) {
+            courseDao.addListener(rankedSearch);
+        }
+        CourseSuggester courseSuggester = Env.getBoolean("COURSE_SUGGEST_ENABLED", localIndexes)
+                ? CourseSuggester.build(courseDao)
+                : null;
+        if (courseSuggester != null) {
+            courseDao.addListener(courseSuggester);
+        }
+        if (courseChanges != null) {
+            courseDao.addListener(courseChanges); // last, see dao.CourseChangeSubscriber
+        }
+        boolean streamCourseListing = Env.getBoolean("COURSE_LISTING_STREAMING", false);
+        RequestMetrics requestMetrics = new RequestMetrics();
+        // Without COURSE_DAO_ASYNC, the dao calls run on the request thread.
+        Executor daoExecutor = Env.getBoolean("COURSE_DAO_ASYNC", false)
+                ? AsyncCourseDao.newBoundedExecutor(Env.getInt("COURSE_DAO_THREADS", 10),
+                        Env.getInt("COURSE_DAO_QUEUE_SIZE", 100))
+                : Runnable::run;
+        AsyncCourseDao asyncCourseDao = new AsyncCourseDao(courseDao, daoExecutor);
+        AsyncCourseDao primaryAsyncCourseDao = new AsyncCourseDao(primaryCourseDao, daoExecutor);
+        // After a write, a client reads from the primary for a while so it sees its write despite replication lag.
+        ReadYourWrites readYourWrites = new ReadYourWrites(replicaRouting != null,
+                Duration.ofSeconds(Env.getLong("READ_YOUR_WRITES_SECONDS", 5)),
+                Env.getString("READ_YOUR_WRITES_SECRET", null));
+        long daoTimeoutMillis = Env.getLong("COURSE_DAO_TIMEOUT_MS", 10000);
 
         exception(ApiError.class, (ex, req, res) -> {
             // Handle the exception here
@@ -32,77 +195,442 @@ public class Server {
             res.body(gson.toJson(map));
             res.status(ex.getStatus());
             res.type("application/json");
+            if (ex.getStatus() == 503) {
+                res.header("Retry-After", "1");
+            }
         });
 
-        get("/api/courses", (req, res) -> {
+        get("/api/courses", requestMetrics.timed((req, res) -> {
             try {
+                String query = req.queryParams("q");
+                if (query != null) {
+                    int k = parseCount(req.queryParams("k"), "k", DEFAULT_SEARCH_RESULTS, MAX_SEARCH_RESULTS);
+                    if (rankedSearch == null) {
+                        throw new ApiError("ranked search is not enabled", 501);
+                    }
+                    return gson.toJson(rankedSearch.search(query, k));
+                }
+                String ids = req.queryParams("ids");
+                if (ids != null) {
+                    AsyncCourseDao reads = readYourWrites.readPrimary(req) ? primaryAsyncCourseDao : asyncCourseDao;
+                    return gson.toJson(await(reads.readMany(parseIds(ids)), daoTimeoutMillis));
+                }
                 String title = req.queryParams("title");
-                List<Course> courses;
+                if (req.queryParams("limit") != null || req.queryParams("after") != null
+                        || req.queryParams("fields") != null) {
+                    CourseDao reads = readYourWrites.readPrimary(req) ? primaryCourseDao : courseDao;
+                    return gson.toJson(await(asyncCourseDao.supply(() -> readPage(reads, titleSearch, title,
+                            req.queryParams("after"), req.queryParams("limit"), req.queryParams("fields"))),
+                            daoTimeoutMillis));
+                }
                 if (title != null) {
-                    courses = courseDao.readAll(title);
-                } else {
-                    courses = courseDao.readAll();
+                    List<Course> courses = await(asyncCourseDao.supply(
+                            () -> titleSearch.search(title, null, Integer.MAX_VALUE)), daoTimeoutMillis);
+                    res.type("application/json");
+                    return gson.toJson(courses);
                 }
-                res.type("application/json");
-                return gson.toJson(courses);
+                if (streamCourseListing) {
+                    // The streamed listing is always uncompressed JSON without an ETag: the Accept and
+                    // Accept-Encoding negotiation of the snapshot below does not apply to it. It is written as the
+                    // courses are read, so it is read on the request thread rather than on the dao executor.
+                    res.type("application/json");
+                    streamCourses(courseDao, gson, res.raw());
+                    return "";
+                }
+                CourseListingSnapshot.Listing current = courseListing.getIfBuilt();
+                if (current == null) {
+                    current = await(primaryAsyncCourseDao.supply(courseListing::get), daoTimeoutMillis);
+                }
+                CourseListingSnapshot.Variant listing = current
+                        .negotiate(req.headers("Accept"), req.headers("Accept-Encoding"));
+                res.header("Vary", "Accept, Accept-Encoding");
+                res.header("ETag", listing.getEtag());
+                if (listing.matches(req.headers("If-None-Match"))) {
+                    res.status(304);
+                    return "";
+                }
+                res.type(listing.getContentType());
+                if (listing.getContentEncoding() != null) {
+                    res.header("Content-Encoding", listing.getContentEncoding());
+                }
+                writeBody(res.raw(), listing.getBody());
+                return "";
             } catch (DaoException ex) {
                 throw new ApiError(ex.getMessage(), 500);
             }
-        });
-        get("/api/courses/:offeringName", (req, res) -> {
+        }));
+        get("/api/courses/suggest", requestMetrics.timed((req, res) -> {
+            String prefix = req.queryParams("prefix");
+            if (prefix == null) {
+                throw new ApiError("prefix is required", 400);
+            }
+            int limit = parseCount(req.queryParams("limit"), "limit", DEFAULT_SUGGESTIONS, MAX_SUGGESTIONS);
+            if (courseSuggester == null) {
+                throw new ApiError("suggestions are not enabled", 501);
+            }
+            return gson.toJson(courseSuggester.suggest(prefix, limit));
+        }));
+        get("/api/courses/changes", requestMetrics.timed((req, res) -> {
+            long since = parseVersion(req.queryParams("since"));
+            AsyncCourseDao reads = readYourWrites.readPrimary(req) ? primaryAsyncCourseDao : asyncCourseDao;
+            CourseChanges changes = await(reads.readChanges(since), daoTimeoutMillis);
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("changes", changes.getChanges());
+            body.put("version", changes.getVersion());
+            return gson.toJson(body);
+        }));
+        get("/api/courses/:offeringName", requestMetrics.timed((req, res) -> {
+            String offeringName = req.params("offeringName");
+            AsyncCourseDao reads = readYourWrites.readPrimary(req) ? primaryAsyncCourseDao : asyncCourseDao;
+            Course course = await(reads.read(offeringName), daoTimeoutMillis);
+            if (course == null) {
+                throw new ApiError("Resource not found", 404); // Bad request
+            }
+            res.type("application/json");
+            return gson.toJson(course);
+        }));
+        post("/api/courses", requestMetrics.timed((req, res) -> {
+            Course course = gson.fromJson(req.body(), Course.class);
+            await(asyncCourseDao.create(course.getOfferingName(), course.getTitle()), daoTimeoutMillis);
+            readYourWrites.written(res);
+            res.status(201);
+            return gson.toJson(course);
+        }));
+        post("/api/courses:batch", requestMetrics.timed((req, res) -> {
             try {
-                String offeringName = req.params("offeringName");
-                Course course = courseDao.read(offeringName);
-                if (course == null) {
-                    throw new ApiError("Resource not found", 404); // Bad request
-                }
-                res.type("application/json");
-                return gson.toJson(course);
+                List<Map<String, String>> results = upsertCourses(asyncCourseDao, gson, req.raw().getInputStream(),
+                        daoTimeoutMillis);
+                readYourWrites.written(res);
+                return gson.toJson(results);
             } catch (DaoException ex) {
                 throw new ApiError(ex.getMessage(), 500);
             }
-        });
-        post("/api/courses", (req, res) -> {
+        }));
+        delete("/api/courses/:offeringName", requestMetrics.timed((req, res) -> {
+            String offeringName = req.params("offeringName");
+            AsyncCourseDao reads = readYourWrites.readPrimary(req) ? primaryAsyncCourseDao : asyncCourseDao;
+            Course course = await(reads.read(offeringName), daoTimeoutMillis);
+            if (course == null) {
+                throw new ApiError("Resource not found", 404); // Bad request
+            }
+            res.type("application/json");
+            return gson.toJson(course);
+        }));
+        put("/api/courses/:offeringName", requestMetrics.timed((req, res) -> {
+            String offeringName = req.params("offeringName");
+            Course course;
             try {
-                Course course = gson.fromJson(req.body(), Course.class);
-                courseDao.create(course.getOfferingName(), course.getTitle());
-                res.status(201);
-                return gson.toJson(course);
-            } catch (DaoException ex) {
+                course = gson.fromJson(req.body(), Course.class);
+            } catch (JsonSyntaxException ex) {
                 throw new ApiError(ex.getMessage(), 500);
             }
-        });
-        delete("/api/courses/:offeringName", (req, res) -> {
-            try {
-                String offeringName = req.params("offeringName");
-                Course course = courseDao.read(offeringName);
-                if (course == null) {
-                    throw new ApiError("Resource not found", 404); // Bad request
+            if (!course.getOfferingName().equals(offeringName)) {
+                throw new ApiError("offering name does not match the resource identifier", 400);
+            }
+            String title = course.getTitle();
+            // Only write when the course exists and its title changes, as the primary sees it.
+            course = await(primaryAsyncCourseDao.read(offeringName).thenCompose(existing -> {
+                if (existing == null || existing.getTitle().equals(title)) {
+                    return CompletableFuture.completedFuture(existing);
                 }
+                return asyncCourseDao.update(offeringName, title);
+            }), daoTimeoutMillis);
+            if (course == null) {
+                throw new ApiError("Resource not found", 404);
+            }
+            readYourWrites.written(res);
+            return gson.toJson(course);
+        }));
+        get("/api/stats/pool", (req, res) -> gson.toJson(sql2o == null ? Map.of() : Database.getPoolStats(sql2o)));
+        get("/api/stats/cache", (req, res) -> gson.toJson(cachingCourseDao.getStats()));
+        get("/metrics", (req, res) -> {
+            PrometheusWriter metrics = new PrometheusWriter();
+            requestMetrics.writeTo(metrics);
+            TimedCourseDao.writeTo(metrics, timedCourseDaos);
+            if (sql2o != null) {
+                writeStats(metrics, "db_pool", "Connection pool statistics.", Database.getPoolStats(sql2o));
+            }
+            writeStats(metrics, "course_cache", "Course cache statistics.", cachingCourseDao.getStats());
+            writeStats(metrics, "course_single_flight", "Course reads made and coalesced.",
+                    singleFlightCourseDao.getStats());
+            if (replicaRouting != null) {
+                writeStats(metrics, "course_replica_routing", "Course reads by database and failovers.",
+                        replicaRouting.getStats());
+                writeStats(metrics, "course_primary_single_flight", "Course reads of the primary made and coalesced.",
+                        primarySingleFlightCourseDao.getStats());
+            }
+            writeStats(metrics, "course_read_batching", "Course reads gathered into batches.",
+                    batchingCourseDao.getStats());
+            if (primaryStore instanceof CompactCourseDao) {
+                writeStats(metrics, "course_catalog", "Compact course catalog statistics.",
+                        ((CompactCourseDao) primaryStore).getStats());
+            }
+            if (courseChanges != null) {
+                writeStats(metrics, "course_changes", "Course change notifications from the database.",
+                        courseChanges.getStats());
+            }
+            JvmMetrics.writeTo(metrics);
+            res.type(PrometheusWriter.CONTENT_TYPE);
+            return metrics.toString();
+        });
+        // Routes set their content type when it is not JSON.
+        after((req, res) -> {
+            if (res.raw().getContentType() == null) {
                 res.type("application/json");
-                return gson.toJson(course);
             }
-            catch (DaoException ex) {
-                throw new ApiError(ex.getMessage(), 500);
+            // Compress the large bodies that routes return, unless they wrote a response of their own.
+            String body = res.body();
+            if (body == null || body.length() < minCompressedSize || res.raw().isCommitted()
+                    || res.raw().containsHeader("Content-Encoding")) {
+                return;
+            }
+            res.header("Vary", "Accept-Encoding");
+            if (ContentNegotiation.encodingQuality(req.headers("Accept-Encoding"), ContentNegotiation.GZIP) > 0) {
+                res.header("Content-Encoding", ContentNegotiation.GZIP);
+                writeBody(res.raw(), ContentNegotiation.gzip(body.getBytes(StandardCharsets.UTF_8),
+                        Deflater.BEST_SPEED));
             }
         });
-        put("/api/courses/:offeringName", (req, res) -> {
-            try {
-                String offeringName = req.params("offeringName");
-                Course course = gson.fromJson(req.body(), Course.class);
-                if (!course.getOfferingName().equals(offeringName)) {
-                    throw new ApiError("offering name does not match the resource identifier", 400);
+    }
+
+    // Get an in-memory dao.CourseDao with the courses of the COURSE_SNAPSHOT file, or the sample courses; a compact
+    // one keeps them in a dao.CompactCourseCatalog rather than as objects.
+    private static CourseDao getInMemoryCourseDao(boolean compact) {
+        String snapshot = Env.getString("COURSE_SNAPSHOT", null);
+        if (snapshot == null) {
+            return compact ? new CompactCourseDao(DataStore.sampleCourses())
+                    : new InMemoryCourseDao(DataStore.sampleCourses());
+        }
+        return compact ? CompactCourseDao.fromSnapshot(Paths.get(snapshot))
+                : InMemoryCourseDao.fromSnapshot(Paths.get(snapshot));
+    }
+
+    // Get the search.TitleSearch selected by TITLE_SEARCH: an in-memory "index" or the "database".
+    private static TitleSearch getTitleSearch(ObservableCourseDao courseDao, String defaultMode) {
+        if (!"index".equalsIgnoreCase(Env.getString("TITLE_SEARCH", defaultMode))) {
+            return new DaoTitleSearch(courseDao);
+        }
+        TitleIndex titleIndex = TitleIndex.build(courseDao);
+        courseDao.addListener(titleIndex);
+        return titleIndex;
+    }
+
+    // Write statistics as a gauge with a stat label, e.g. db_pool{stat="active"} 2.
+    private static void writeStats(PrometheusWriter metrics, String name, String help,
+                                   Map<String, ? extends Number> stats) {
+        metrics.family(name, "gauge", help);
+        stats.forEach((stat, value) ->
+                metrics.sample(name, PrometheusWriter.labels("stat", stat), value.doubleValue()));
+    }
+
+    // Read the page of courses after the cursor, along with the cursor of the next page if there is one. The courses
+    // only have the fields listed in fieldsParam, if it is not null.
+    private static Map<String, Object> readPage(CourseDao courseDao, TitleSearch titleSearch, String title,
+                                                String cursor, String limitParam, String fieldsParam) {
+        int limit = parseCount(limitParam, "limit", DEFAULT_PAGE_SIZE, MAX_PAGE_SIZE);
+        Set<String> fields = parseFields(fieldsParam);
+        String after = PageCursor.decode(cursor);
+        // Read one course more than asked for to find out whether there is a next page.
+        List<Course> courses = title != null
+                ? titleSearch.search(title, after, limit + 1)
+                : courseDao.readPage(after, limit + 1);
+        String next = null;
+        if (courses.size() > limit) {
+            courses = courses.subList(0, limit);
+            next = PageCursor.encode(courses.get(limit - 1).getOfferingName());
+        }
+        if (fields.size() < COURSE_FIELDS.size()) {
+            // The fields left out are null, which Gson does not write.
+            List<Course> limited = new ArrayList<>(courses.size());
+            for (Course course : courses) {
+                limited.add(new Course(fields.contains("offeringName") ? course.getOfferingName() : null,
+                        fields.contains("title") ? course.getTitle() : null));
+            }
+            courses = limited;
+        }
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("courses", courses);
+        page.put("next", next);
+        return page;
+    }
+
+    // Wait for the result of dao calls, turning their failures into API errors. Spark writes the response once the
+    // route returns, so the request thread waits here (with SERVER_THREADS=virtual, only a virtual thread is parked).
+    // A call that does not complete within timeoutMillis gets a 503: cancelling its future keeps it from running if
+    // it is still queued, but a call already running goes on until the database answers (see
+    // DB_STATEMENT_TIMEOUT_MS), holding its executor thread and connection.
+    private static <T> T await(CompletableFuture<T> future, long timeoutMillis) {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof ApiError) {
+                throw (ApiError) cause;
+            }
+            if (cause instanceof DaoOverloadedException) {
+                throw new ApiError(cause.getMessage(), 503);
+            }
+            throw new ApiError(cause.getMessage(), 500);
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            throw new ApiError("The course request timed out", 503);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ApiError("The course request was interrupted", 503);
+        }
+    }
+
+    // Parse a count query parameter between 1 and max, or get defaultValue if it is absent.
+    private static int parseCount(String param, String name, int defaultValue, int max) {
+        if (param == null) {
+            return defaultValue;
+        }
+        int count;
+        try {
+            count = Integer.parseInt(param);
+        } catch (NumberFormatException ex) {
+            throw new ApiError(name + " must be an integer", 400);
+        }
+        if (count < 1 || count > max) {
+            throw new ApiError(name + " must be between 1 and " + max, 400);
+        }
+        return count;
+    }
+
+    // Parse a comma-separated list of course fields, e.g. "offeringName", ignoring case; every field if it is null.
+    private static Set<String> parseFields(String param) {
+        Set<String> fields = new HashSet<>();
+        if (param == null) {
+            fields.addAll(COURSE_FIELDS);
+            return fields;
+        }
+        for (String field : param.split(",")) {
+            String name = null;
+            for (String courseField : COURSE_FIELDS) {
+                if (courseField.equalsIgnoreCase(field.trim())) {
+                    name = courseField;
                 }
-                course = courseDao.update(course.getOfferingName(), course.getTitle());
-                if (course == null) {
-                    throw new ApiError("Resource not found", 404);
+            }
+            if (name == null) {
+                throw new ApiError("fields must only list " + String.join(", ", COURSE_FIELDS), 400);
+            }
+            fields.add(name);
+        }
+        return fields;
+    }
+
+    // Parse the version to read the changes since, 0 (every course) if there is none.
+    private static long parseVersion(String param) {
+        if (param == null) {
+            return 0;
+        }
+        long version;
+        try {
+            version = Long.parseLong(param);
+        } catch (NumberFormatException ex) {
+            throw new ApiError("since must be an integer", 400);
+        }
+        if (version < 0) {
+            throw new ApiError("since must not be negative", 400);
+        }
+        return version;
+    }
+
+    // Parse a comma-separated list of offeringNames, e.g. "EN.601.226,EN.601.315".
+    private static List<String> parseIds(String param) {
+        List<String> ids = new ArrayList<>();
+        for (String id : param.split(",")) {
+            if (!id.isBlank()) {
+                ids.add(id.trim());
+            }
+        }
+        if (ids.size() > MAX_IDS) {
+            throw new ApiError("ids must list at most " + MAX_IDS + " courses", 400);
+        }
+        return ids;
+    }
+
+    // Read a JSON array of courses, write the valid ones in a single batch and report what happened to each.
+    private static List<Map<String, String>> upsertCourses(AsyncCourseDao courseDao, Gson gson, InputStream body,
+                                                           long timeoutMillis) {
+        List<Map<String, String>> results = new ArrayList<>();
+        List<Map<String, String>> written = new ArrayList<>();
+        List<Course> courses = new ArrayList<>();
+        try {
+            JsonReader reader = gson.newJsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (results.size() == MAX_BATCH_SIZE) {
+                    throw new ApiError("a batch may contain at most " + MAX_BATCH_SIZE + " courses", 413);
                 }
-                return gson.toJson(course);
-            } catch (DaoException | JsonSyntaxException ex) {
-                throw new ApiError(ex.getMessage(), 500);
+                Course course = gson.fromJson(reader, Course.class);
+                Map<String, String> result = new LinkedHashMap<>();
+                result.put("Offering Name", course == null ? null : course.getOfferingName());
+                String error = validate(course);
+                if (error != null) {
+                    result.put("status", "invalid");
+                    result.put("error", error);
+                } else {
+                    courses.add(course);
+                    written.add(result);
+                }
+                results.add(result);
             }
-        });
-        after((req, res) -> res.type("application/json"));
+            reader.endArray();
+        } catch (IOException | JsonParseException | IllegalStateException ex) {
+            throw new ApiError("the request body must be a JSON array of courses", 400);
+        }
+
+        List<UpsertOutcome> outcomes = await(courseDao.upsertAll(courses), timeoutMillis);
+        for (int i = 0; i < outcomes.size(); i++) {
+            written.get(i).put("status", outcomes.get(i).name().toLowerCase(Locale.ROOT));
+        }
+        return results;
+    }
+
+    // Get what is wrong with a course read from a request, or null if it can be written to the database.
+    private static String validate(Course course) {
+        if (course == null || course.getOfferingName() == null || course.getTitle() == null) {
+            return "offering name and title are required";
+        }
+        if (course.getOfferingName().length() > MAX_OFFERING_NAME_LENGTH) {
+            return "offering name is longer than " + MAX_OFFERING_NAME_LENGTH + " characters";
+        }
+        if (course.getTitle().length() > MAX_TITLE_LENGTH) {
+            return "title is longer than " + MAX_TITLE_LENGTH + " characters";
+        }
+        return null;
+    }
+
+    // Write all the courses to the response as a JSON array, one course at a time. If reading or writing them fails
+    // once the response is committed, its status can no longer tell the client, so the connection is aborted rather
+    // than ending the array: the client sees a broken response instead of a truncated listing with a 200.
+    private static void streamCourses(CourseDao courseDao, Gson gson, HttpServletResponse response)
+            throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        JsonWriter writer = gson.newJsonWriter(out);
+        try {
+            writer.beginArray();
+            courseDao.streamAll(course -> gson.toJson(course, Course.class, writer));
+            writer.endArray();
+            writer.flush();
+        } catch (RuntimeException | IOException ex) {
+            if (!response.isCommitted()) {
+                response.resetBuffer(); // the route reports the failure instead of the courses written so far
+                throw ex;
+            }
+            LOG.warn("Aborting the course listing after its response was committed", ex);
+            if (response instanceof Response) {
+                ((Response) response).getHttpChannel().abort(ex);
+            }
+        }
+    }
+
+    // Write a whole body to the response and commit it, so Spark neither writes the route's result nor compresses it.
+    private static void writeBody(HttpServletResponse response, byte[] body) throws IOException {
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        response.flushBuffer();
     }
 
     private static int getHerokuAssignedPort() {
@@ -115,19 +643,6 @@ public class Server {
         return 4567;
     }
 
-    private static CourseDao getCourseDao() throws URISyntaxException {
-        String databaseUrl = System.getenv("DATABASE_URL");
-        URI dbUri = new URI(databaseUrl);
-
-        String username = dbUri.getUserInfo().split(":")[0];
-        String password = dbUri.getUserInfo().split(":")[1];
-        String dbUrl = "jdbc:postgresql://" + dbUri.getHost() + ':'
-                + dbUri.getPort() + dbUri.getPath() + "?sslmode=require";
-
-        Sql2o sql2o = new Sql2o(dbUrl, username, password);
-        return new Sql2oCourseDao(sql2o);
-    }
-
     /**
      * Stop the server.
      */
@@ -0,0 +1,145 @@
+package api;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+import spark.embeddedserver.jetty.JettyServerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A Jetty thread pool that runs each connection and request on its own virtual thread (Java 21 or later).
+ * <p>
+ * A request blocked on the database then parks its virtual thread instead of holding one of a bounded number of
+ * platform threads, so thousands of waiting requests cost little memory and no pool slots; the database itself is
+ * protected by the bounded connection pool of util.Database. The acceptor and selector loops, which Jetty starts
+ * along with the server and which run for as long as it does, keep running on platform threads.
+ * </p>
+ * <p>
+ * Virtual threads are created through reflection so the application still builds, and runs with Spark's default
+ * pool, on older JDKs.
+ * </p>
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+
+    private static final int STOP_TIMEOUT_SECONDS = 30;
+
+    private final Method newVirtualThreadPerTaskExecutor;
+    private final AtomicInteger active = new AtomicInteger();
+    private ExecutorService virtualThreads;
+    private ExecutorService platformThreads;
+    private volatile boolean serving; // true once the server has started its acceptors and selectors
+
+    /**
+     * Construct api.VirtualThreadPool.
+     *
+     * @throws IllegalStateException if the JDK does not support virtual threads.
+     */
+    public VirtualThreadPool() {
+        try {
+            newVirtualThreadPerTaskExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalStateException("Virtual threads require Java 21 or later, not "
+                    + System.getProperty("java.version"), ex);
+        }
+    }
+
+    /**
+     * Make Spark start its Jetty server with a api.VirtualThreadPool; call before mapping any route.
+     *
+     * @throws IllegalStateException if the JDK does not support virtual threads.
+     */
+    public static void install() {
+        new VirtualThreadPool(); // Fail now rather than when Spark starts the server.
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY, new EmbeddedJettyFactory(new JettyServerFactory() {
+            @Override
+            public Server create(int maxThreads, int minThreads, int threadTimeoutMillis) {
+                return create(new VirtualThreadPool());
+            }
+
+            @Override
+            public Server create(ThreadPool threadPool) {
+                Server server = new Server(threadPool);
+                if (threadPool instanceof VirtualThreadPool) {
+                    server.addLifeCycleListener(new AbstractLifeCycle.AbstractLifeCycleListener() {
+                        @Override
+                        public void lifeCycleStarted(LifeCycle event) {
+                            ((VirtualThreadPool) threadPool).serving = true;
+                        }
+                    });
+                }
+                return server;
+            }
+        }));
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        virtualThreads = (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+        platformThreads = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable task) {
+                return new Thread(task, "jetty-" + count.incrementAndGet());
+            }
+        });
+        serving = false;
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        virtualThreads.shutdown();
+        platformThreads.shutdown();
+        if (!virtualThreads.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            virtualThreads.shutdownNow();
+        }
+        if (!platformThreads.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            platformThreads.shutdownNow();
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        ExecutorService executor = serving ? virtualThreads : platformThreads;
+        executor.execute(() -> {
+            active.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        while (!virtualThreads.awaitTermination(1, TimeUnit.DAYS)
+                || !platformThreads.awaitTermination(1, TimeUnit.DAYS)) {
+            // Keep waiting.
+        }
+    }
+
+    @Override
+    public int getThreads() {
+        return active.get();
+    }
+
+    @Override
+    public int getIdleThreads() {
+        return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+}
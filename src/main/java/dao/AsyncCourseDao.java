@@ -0,0 +1,197 @@
+package dao;
+
+import exceptions.DaoOverloadedException;
+import model.Course;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the calls to a dao.CourseDao on an executor and returns their results as futures, so callers can compose
+ * calls (e.g. read a course, then update it) and decide where to wait for them.
+ * <p>
+ * With an executor from #newBoundedExecutor(int, int), calls beyond the threads and the queue fail right away with
+ * an exceptions.DaoOverloadedException instead of piling up behind a slow database.
+ * </p>
+ * <p>
+ * Cancelling a future keeps its call from running if it is still waiting in the queue. A call already running is
+ * not interrupted: it keeps its thread (and database connection) until the dao returns.
+ * </p>
+ */
+public class AsyncCourseDao {
+
+    private final CourseDao delegate;
+    private final Executor executor;
+
+    /**
+     * Construct dao.AsyncCourseDao.
+     *
+     * @param delegate The dao.CourseDao to read from and write to.
+     * @param executor The executor to run the calls on; Runnable::run runs them on the calling thread.
+     */
+    public AsyncCourseDao(CourseDao delegate, Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    /**
+     * Create an executor for dao calls that rejects calls once its queue is full.
+     *
+     * @param threads The number of calls to run at once, e.g. the size of the database connection pool.
+     * @param queueSize The number of calls that may wait for a thread.
+     * @return the executor.
+     */
+    public static ThreadPoolExecutor newBoundedExecutor(int threads, int queueSize) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), task -> {
+                    Thread thread = new Thread(task, "course-dao-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Create a course.
+     *
+     * @param offeringName The alphanumeric code of the course.
+     * @param title The title of the course.
+     * @return a future of the course created; it fails with an exceptions.DaoException if the call fails.
+     */
+    public CompletableFuture<Course> create(String offeringName, String title) {
+        return submit(() -> delegate.create(offeringName, title));
+    }
+
+    /**
+     * Create or update courses in a single batch.
+     *
+     * @param courses The courses to write.
+     * @return a future of the outcome of each write, in the order of courses.
+     */
+    public CompletableFuture<List<UpsertOutcome>> upsertAll(List<Course> courses) {
+        return submit(() -> delegate.upsertAll(courses));
+    }
+
+    /**
+     * Read a course.
+     *
+     * @param offeringName The alphanumeric code of the course.
+     * @return a future of the course with offeringName, or of null if it does not exist.
+     */
+    public CompletableFuture<Course> read(String offeringName) {
+        return submit(() -> delegate.read(offeringName));
+    }
+
+    /**
+     * Read the courses with any of the given offeringNames.
+     *
+     * @param offeringNames The alphanumeric codes of the courses.
+     * @return a future of the courses found, in the order of offeringNames.
+     */
+    public CompletableFuture<List<Course>> readMany(Collection<String> offeringNames) {
+        return submit(() -> delegate.readMany(offeringNames));
+    }
+
+    /**
+     * Read all courses.
+     *
+     * @return a future of all the courses.
+     */
+    public CompletableFuture<List<Course>> readAll() {
+        return submit(delegate::readAll);
+    }
+
+    /**
+     * Read all courses with a title containing titleQuery.
+     *
+     * @param titleQuery A search term.
+     * @return a future of the courses found.
+     */
+    public CompletableFuture<List<Course>> readAll(String titleQuery) {
+        return submit(() -> delegate.readAll(titleQuery));
+    }
+
+    /**
+     * Read a page of courses ordered by offeringName.
+     *
+     * @param after The offeringName the page starts after; null for the first page.
+     * @param limit The maximum number of courses in the page.
+     * @return a future of the page.
+     */
+    public CompletableFuture<List<Course>> readPage(String after, int limit) {
+        return submit(() -> delegate.readPage(after, limit));
+    }
+
+    /**
+     * Read a page of the courses with a title containing titleQuery, ordered by offeringName.
+     *
+     * @param titleQuery A search term; null for all the courses.
+     * @param after The offeringName the page starts after; null for the first page.
+     * @param limit The maximum number of courses in the page.
+     * @return a future of the page.
+     */
+    public CompletableFuture<List<Course>> readPage(String titleQuery, String after, int limit) {
+        return submit(() -> delegate.readPage(titleQuery, after, limit));
+    }
+
+    /**
+     * Read the latest change to each course changed since a version.
+     *
+     * @param since The version returned by a previous call; 0 to read every course.
+     * @return a future of the changes.
+     */
+    public CompletableFuture<CourseChanges> readChanges(long since) {
+        return submit(() -> delegate.readChanges(since));
+    }
+
+    /**
+     * Run other work that reads or writes courses through the dao on the same executor, e.g. a search backed by it,
+     * so that it is bounded along with the calls to the dao.
+     *
+     * @param work The work to run.
+     * @param <T> The type of its result.
+     * @return a future of the result of work.
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> work) {
+        return submit(work);
+    }
+
+    /**
+     * Update the title of a course.
+     *
+     * @param offeringName The alphanumeric code of the course.
+     * @param title The new title of the course.
+     * @return a future of the updated course, or of null if it does not exist.
+     */
+    public CompletableFuture<Course> update(String offeringName, String title) {
+        return submit(() -> delegate.update(offeringName, title));
+    }
+
+    /**
+     * Delete a course.
+     *
+     * @param offeringName The alphanumeric code of the course.
+     * @return a future of the deleted course, or of null if it does not exist.
+     */
+    public CompletableFuture<Course> delete(String offeringName) {
+        return submit(() -> delegate.delete(offeringName));
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> call) {
+        try {
+            return CompletableFuture.supplyAsync(call, executor);
+        } catch (RejectedExecutionException ex) {
+            return CompletableFuture.failedFuture(new DaoOverloadedException("Too many pending course requests", ex));
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package dao;
+
+import exceptions.DaoException;
+import model.Course;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A dao.CourseDao that gathers the courses read one at a time by concurrent callers into a single readMany call to
+ * another dao.CourseDao.
+ * <p>
+ * The first read starts a batch and waits up to a short window for other reads to join it, or less if the batch
+ * fills up first; it then reads all the courses of the batch at once, and each caller gets its own course. A burst
+ * of reads thus costs one database round-trip instead of one each, at the price of up to a window of latency when
+ * reads are few. Everything else is passed through.
+ * </p>
+ */
+public class BatchingCourseDao implements CourseDao {
+
+    private final CourseDao delegate;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private Batch open; // guarded by this; the batch new reads join, if any
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder reads = new LongAdder();
+
+    /**
+     * Construct dao.BatchingCourseDao.
+     *
+     * @param delegate The dao.CourseDao to read from and write to.
+     * @param window How long the first read of a batch waits for others to join it.
+     * @param maxBatchSize The number of courses after which a batch is read without waiting any longer.
+     */
+    public BatchingCourseDao(CourseDao delegate, Duration window, int maxBatchSize) {
+        this.delegate = delegate;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public Course create(String offeringName, String title) throws DaoException {
+        return delegate.create(offeringName, title);
+    }
+
+    @Override
+    public List<UpsertOutcome> upsertAll(List<Course> courses) throws DaoException {
+        return delegate.upsertAll(courses);
+    }
+
+    @Override
+    public Course read(String offeringName) throws DaoException {
+        if (offeringName == null) {
+            return delegate.read(null);
+        }
+        reads.increment();
+        Batch batch;
+        boolean first;
+        CompletableFuture<Course> course;
+        synchronized (this) {
+            first = open == null;
+            if (first) {
+                open = new Batch();
+            }
+            batch = open;
+            course = batch.courses.computeIfAbsent(offeringName, name -> new CompletableFuture<>());
+            if (batch.courses.size() >= maxBatchSize) {
+                open = null;
+                batch.full.countDown();
+            }
+        }
+        if (first) {
+            try {
+                batch.full.await(windowNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                if (open == batch) {
+                    open = null;
+                }
+            }
+            batch.read();
+        }
+        try {
+            return course.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    @Override
+    public List<Course> readMany(Collection<String> offeringNames) throws DaoException {
+        return delegate.readMany(offeringNames);
+    }
+
+    @Override
+    public List<Course> readAll() throws DaoException {
+        return delegate.readAll();
+    }
+
+    @Override
+    public void streamAll(Consumer<? super Course> action) throws DaoException {
+        delegate.streamAll(action);
+    }
+
+    @Override
+    public List<Course> readAll(String titleQuery) throws DaoException {
+        return delegate.readAll(titleQuery);
+    }
+
+    @Override
+    public List<Course> readPage(String after, int limit) throws DaoException {
+        return delegate.readPage(after, limit);
+    }
+
+    @Override
+    public List<Course> readPage(String titleQuery, String after, int limit) throws DaoException {
+        return delegate.readPage(titleQuery, after, limit);
+    }
+
+    @Override
+    public CourseChanges readChanges(long since) throws DaoException {
+        return delegate.readChanges(since);
+    }
+
+    @Override
+    public Course update(String offeringName, String title) throws DaoException {
+        return delegate.update(offeringName, title);
+    }
+
+    @Override
+    public Course delete(String offeringName) throws DaoException {
+        return delegate.delete(offeringName);
+    }
+
+    /**
+     * Get the number of courses read one at a time and of the batches they were read in.
+     *
+     * @return the statistics, by name.
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("reads", reads.sum());
+        stats.put("batches", batches.sum());
+        return stats;
+    }
+
+    // The courses waited for by the reads of a batch.
+    private final class Batch {
+        private final Map<String, CompletableFuture<Course>> courses = new LinkedHashMap<>(); // guarded by the dao
+        private final CountDownLatch full = new CountDownLatch(1);
+
+        // Read the courses of the batch, which no read can join any longer.
+        private void read() {
+            batches.increment();
+            try {
+                Map<String, Course> found = new HashMap<>();
+                for (Course course : delegate.readMany(new ArrayList<>(courses.keySet()))) {
+                    found.put(course.getOfferingName(), course);
+                }
+                courses.forEach((offeringName, course) -> course.complete(found.get(offeringName)));
+            } catch (RuntimeException | Error ex) {
+                courses.values().forEach(course -> course.completeExceptionally(ex));
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package dao;
+
+import exceptions.DaoException;
+import model.Course;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A read-through cache in front of another dao.CourseDao.
+ * <p>
+ * Courses read by offeringName, one at a time or many at once (including the ones that do not exist), and the
+ * full listing returned by readAll() are kept in memory until they expire, are evicted because the cache is full
+ * (least recently used first), or a write through this object invalidates them. Title searches, pages and
+ * streamed listings are not cached.
+ * </p>
+ * <p>
+ * Cache misses may be read from another dao.CourseDao than the one written to, such as the primary database when the
+ * delegate reads from replicas: otherwise a replica that has not caught up with a write yet would have its stale
+ * value cached until it expires.
+ * </p>
+ */
+public class CachingCourseDao implements CourseDao {
+
+    private final CourseDao delegate;
+    private final CourseDao loader;
+    private final int maxSize;
+    private final long ttlNanos;
+
+    // Access ordered, so the eldest entry is the least recently used one; guarded by this.
+    private final LinkedHashMap<String, CacheEntry> courses;
+    private CacheEntry all; // guarded by this
+    private long generation; // guarded by this; incremented on every write
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Construct dao.CachingCourseDao.
+     *
+     * @param delegate The dao.CourseDao to read from and write to.
+     * @param maxSize The maximum number of courses to keep in the cache.
+     * @param ttl How long a cached value may be served before it is read again from the delegate.
+     */
+    public CachingCourseDao(CourseDao delegate, int maxSize, Duration ttl) {
+        this(delegate, delegate, maxSize, ttl);
+    }
+
+    /**
+     * Construct dao.CachingCourseDao that reads cache misses from loader.
+     *
+     * @param delegate The dao.CourseDao to write to, and to read what is not cached from.
+     * @param loader The dao.CourseDao to read the values to cache from.
+     * @param maxSize The maximum number of courses to keep in the cache.
+     * @param ttl How long a cached value may be served before it is read again from the loader.
+     */
+    public CachingCourseDao(CourseDao delegate, CourseDao loader, int maxSize, Duration ttl) {
+        this.delegate = delegate;
+        this.loader = loader;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.courses = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                if (size() > CachingCourseDao.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public Course create(String offeringName, String title) throws DaoException {
+        try {
+            return delegate.create(offeringName, title);
+        } finally {
+            invalidate(offeringName);
+        }
+    }
+
+    @Override
+    public List<UpsertOutcome> upsertAll(List<Course> courses) throws DaoException {
+        try {
+            return delegate.upsertAll(courses);
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public Course read(String offeringName) throws DaoException {
+        long readGeneration;
+        synchronized (this) {
+            CacheEntry entry = courses.get(offeringName);
+            if (entry != null && !entry.isExpired()) {
+                hits.increment();
+                return (Course) entry.value;
+            }
+            if (entry != null) {
+                courses.remove(offeringName);
+                evictions.increment();
+            }
+            readGeneration = generation;
+        }
+        misses.increment();
+        Course course = loader.read(offeringName);
+        synchronized (this) {
+            // Do not cache a value that may have been changed by a write while it was being read.
+            if (readGeneration == generation) {
+                courses.put(offeringName, new CacheEntry(course));
+            }
+        }
+        return course;
+    }
+
+    @Override
+    public List<Course> readMany(Collection<String> offeringNames) throws DaoException {
+        Map<String, Course> found = new LinkedHashMap<>(); // offeringName -> course, or null if not found yet
+        List<String> missing = new ArrayList<>();
+        long readGeneration;
+        synchronized (this) {
+            for (String offeringName : offeringNames) {
+                if (offeringName == null || found.containsKey(offeringName)) {
+                    continue;
+                }
+                CacheEntry entry = courses.get(offeringName);
+                if (entry != null && !entry.isExpired()) {
+                    hits.increment();
+                    found.put(offeringName, (Course) entry.value);
+                    continue;
+                }
+                if (entry != null) {
+                    courses.remove(offeringName);
+                    evictions.increment();
+                }
+                misses.increment();
+                found.put(offeringName, null);
+                missing.add(offeringName);
+            }
+            readGeneration = generation;
+        }
+        if (!missing.isEmpty()) {
+            for (Course course : loader.readMany(missing)) {
+                found.put(course.getOfferingName(), course);
+            }
+            synchronized (this) {
+                if (readGeneration == generation) {
+                    for (String offeringName : missing) {
+                        courses.put(offeringName, new CacheEntry(found.get(offeringName)));
+                    }
+                }
+            }
+        }
+        List<Course> read = new ArrayList<>(found.size());
+        for (Course course : found.values()) {
+            if (course != null) {
+                read.add(course);
+            }
+        }
+        return read;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Course> readAll() throws DaoException {
+        long readGeneration;
+        synchronized (this) {
+            if (all != null && !all.isExpired()) {
+                hits.increment();
+                return (List<Course>) all.value;
+            }
+            if (all != null) {
+                all = null;
+                evictions.increment();
+            }
+            readGeneration = generation;
+        }
+        misses.increment();
+        List<Course> snapshot = Collections.unmodifiableList(new ArrayList<>(loader.readAll()));
+        synchronized (this) {
+            if (readGeneration == generation) {
+                all = new CacheEntry(snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    @Override
+    public void streamAll(Consumer<? super Course> action) throws DaoException {
+        delegate.streamAll(action);
+    }
+
+    @Override
+    public List<Course> readAll(String titleQuery) throws DaoException {
+        return delegate.readAll(titleQuery);
+    }
+
+    @Override
+    public List<Course> readPage(String after, int limit) throws DaoException {
+        return delegate.readPage(after, limit);
+    }
+
+    @Override
+    public List<Course> readPage(String titleQuery, String after, int limit) throws DaoException {
+        return delegate.readPage(titleQuery, after, limit);
+    }
+
+    @Override
+    public CourseChanges readChanges(long since) throws DaoException {
+        return delegate.readChanges(since);
+    }
+
+    @Override
+    public Course update(String offeringName, String title) throws DaoException {
+        try {
+            return delegate.update(offeringName, title);
+        } finally {
+            invalidate(offeringName);
+        }
+    }
+
+    @Override
+    public Course delete(String offeringName) throws DaoException {
+        try {
+            return delegate.delete(offeringName);
+        } finally {
+            invalidate(offeringName);
+        }
+    }
+
+    /**
+     * Drop a course, and the full listing, from the cache.
+     *
+     * @param offeringName The course alphanumeric code.
+     */
+    public synchronized void invalidate(String offeringName) {
+        generation++;
+        courses.remove(offeringName);
+        all = null;
+    }
+
+    /**
+     * Drop everything from the cache.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        courses.clear();
+        all = null;
+    }
+
+    /**
+     * Get the cache statistics.
+     *
+     * @return the number of hits, misses and evictions so far, and the number of courses currently cached.
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        synchronized (this) {
+            stats.put("size", (long) courses.size());
+        }
+        return stats;
+    }
+
+    // A cached value along with the time it stops being valid.
+    private final class CacheEntry {
+        private final Object value;
+        private final long expiresAt;
+
+        private CacheEntry(Object value) {
+            this.value = value;
+            this.expiresAt = System.nanoTime() + ttlNanos;
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - expiresAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package dao;
+
+import exceptions.DaoException;
+import model.Course;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.RandomAccess;
+
+/**
+ * An immutable catalog of courses ordered by offeringName, encoded in a few flat arrays rather than as two strings
+ * per course.
+ * <p>
+ * An offeringName is split after its last '.' into a prefix shared by many courses (e.g. "EN.601.") and a suffix
+ * (e.g. "226"). Each distinct prefix is kept once; the suffixes are kept back to back, in UTF-8, in a single byte
+ * array along with a table of where each one starts. Titles are dictionary encoded the same way: each distinct title
+ * is kept once in a byte array with an offset table, and each course holds the id of its title. A course then takes
+ * three ints and the bytes of its suffix, and going through the courses (e.g. to find the titles matching a query)
+ * reads a few contiguous arrays. model.Course objects are only created when a course is asked for, and not kept.
+ * </p>
+ */
+public final class CompactCourseCatalog {
+
+    private static final CompactCourseCatalog EMPTY = new Builder(0).build();
+
+    private final String[] prefixes;    // the distinct prefixes of the offeringNames
+    private final int[] prefixIds;      // course index -> index in prefixes
+    private final byte[] suffixes;      // the suffixes of the offeringNames in UTF-8, back to back
+    private final int[] suffixOffsets;  // course index -> where its suffix starts; one more entry for the end
+    private final byte[] titles;        // the distinct titles in UTF-8, back to back
+    private final int[] titleOffsets;   // title id -> where the title starts; one more entry for the end
+    private final int[] titleIds;       // course index -> title id
+
+    private CompactCourseCatalog(Builder builder) {
+        int size = builder.size;
+        prefixes = builder.prefixes.toArray(new String[0]);
+        prefixIds = Arrays.copyOf(builder.prefixIds, size);
+        suffixes = builder.suffixes.toByteArray();
+        suffixOffsets = Arrays.copyOf(builder.suffixOffsets, size + 1);
+        titles = builder.titles.toByteArray();
+        titleOffsets = Arrays.copyOf(builder.titleOffsets, builder.titleIdsByTitle.size() + 1);
+        titleIds = Arrays.copyOf(builder.titleIds, size);
+    }
+
+    /**
+     * Get a catalog of no course.
+     *
+     * @return the empty catalog.
+     */
+    public static CompactCourseCatalog empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Build a catalog of courses.
+     *
+     * @param courses The courses, in any order; of the courses with the same offeringName, the last one is kept.
+     * @return the catalog.
+     * @throws DaoException if a course has no offeringName or no title.
+     */
+    public static CompactCourseCatalog of(Collection<Course> courses) throws DaoException {
+        List<Course> sorted = new ArrayList<>(courses);
+        for (Course course : sorted) {
+            if (course.getOfferingName() == null || course.getTitle() == null) {
+                throw new DaoException("Unable to add a course without an offering name and a title", null);
+            }
+        }
+        sorted.sort(Comparator.comparing(Course::getOfferingName)); // stable, so the last duplicate stays last
+        Builder builder = new Builder(sorted.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            Course course = sorted.get(i);
+            if (i + 1 < sorted.size() && sorted.get(i + 1).getOfferingName().equals(course.getOfferingName())) {
+                continue;
+            }
+            builder.add(course.getOfferingName(), course.getTitle());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Get the number of courses.
+     *
+     * @return the number of courses in the catalog.
+     */
+    public int size() {
+        return titleIds.length;
+    }
+
+    /**
+     * Get a course.
+     *
+     * @param index The position of the course in the order of offeringNames.
+     * @return a new model.Course.
+     */
+    public Course get(int index) {
+        return new Course(getOfferingName(index), getTitle(index));
+    }
+
+    /**
+     * Get the offeringName of a course.
+     *
+     * @param index The position of the course in the order of offeringNames.
+     * @return the offeringName.
+     */
+    public String getOfferingName(int index) {
+        int start = suffixOffsets[index];
+        return prefixes[prefixIds[index]]
+                + new String(suffixes, start, suffixOffsets[index + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the title of a course.
+     *
+     * @param index The position of the course in the order of offeringNames.
+     * @return the title.
+     */
+    public String getTitle(int index) {
+        return decodeTitle(titleIds[index]);
+    }
+
+    /**
+     * Find a course by offeringName.
+     *
+     * @param offeringName The course alphanumeric code.
+     * @return the position of the course, or (-(insertion point) - 1) if there is none, like Arrays#binarySearch.
+     */
+    public int indexOf(String offeringName) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareTo(offeringName, mid);
+            if (cmp > 0) {
+                low = mid + 1;
+            } else if (cmp < 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Get a read-only view of the courses, which creates each model.Course when it is asked for.
+     *
+     * @return the courses, ordered by offeringName.
+     */
+    public List<Course> asList() {
+        return new CourseList();
+    }
+
+    /**
+     * Get the number of distinct offeringName prefixes and titles, and an estimate of the bytes the catalog takes.
+     *
+     * @return the statistics, by name.
+     */
+    public Map<String, Long> getStats() {
+        long bytes = 4L * (prefixIds.length + suffixOffsets.length + titleOffsets.length + titleIds.length)
+                + suffixes.length + titles.length;
+        for (String prefix : prefixes) {
+            bytes += 40 + prefix.length(); // a String and its array, with their headers
+        }
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("courses", (long) size());
+        stats.put("prefixes", (long) prefixes.length);
+        stats.put("titles", (long) titleOffsets.length - 1);
+        stats.put("bytes", bytes);
+        return stats;
+    }
+
+    // Compare offeringName with the one of a course, without decoding it unless its suffix is not ASCII.
+    int compareTo(String offeringName, int index) {
+        String prefix = prefixes[prefixIds[index]];
+        int length = offeringName.length();
+        int prefixLength = Math.min(prefix.length(), length);
+        for (int k = 0; k < prefixLength; k++) {
+            int cmp = offeringName.charAt(k) - prefix.charAt(k);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        if (prefix.length() > length) {
+            return -1;
+        }
+        int start = suffixOffsets[index];
+        int end = suffixOffsets[index + 1];
+        for (int k = start; k < end; k++) {
+            byte b = suffixes[k];
+            if (b < 0) {
+                return offeringName.compareTo(getOfferingName(index));
+            }
+            int position = prefix.length() + k - start;
+            if (position == length) {
+                return -1;
+            }
+            int cmp = offeringName.charAt(position) - b;
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - (prefix.length() + end - start);
+    }
+
+    // Find which distinct titles match a query: title id -> whether it matches.
+    boolean[] titlesMatching(TitleQuery query) {
+        boolean[] matches = new boolean[titleOffsets.length - 1];
+        for (int id = 0; id < matches.length; id++) {
+            matches[id] = query.matches(decodeTitle(id));
+        }
+        return matches;
+    }
+
+    // Get the title id of a course, to look it up in the result of titlesMatching.
+    int getTitleId(int index) {
+        return titleIds[index];
+    }
+
+    // Build the catalog of these courses with some of them replaced or removed (mapped to the deleted sentinel).
+    CompactCourseCatalog merge(NavigableMap<String, Course> changes, Course deleted) {
+        Builder builder = new Builder(size() + changes.size());
+        String[] decodedTitles = new String[titleOffsets.length - 1];
+        Iterator<Map.Entry<String, Course>> entries = changes.entrySet().iterator();
+        Map.Entry<String, Course> entry = entries.hasNext() ? entries.next() : null;
+        int index = 0;
+        while (index < size() || entry != null) {
+            int cmp = entry == null ? -1 : index == size() ? 1 : -compareTo(entry.getKey(), index);
+            if (cmp < 0) {
+                int titleId = titleIds[index];
+                if (decodedTitles[titleId] == null) {
+                    decodedTitles[titleId] = decodeTitle(titleId);
+                }
+                builder.add(getOfferingName(index), decodedTitles[titleId]);
+                index++;
+                continue;
+            }
+            if (entry.getValue() != deleted) {
+                builder.add(entry.getKey(), entry.getValue().getTitle());
+            }
+            if (cmp == 0) {
+                index++;
+            }
+            entry = entries.hasNext() ? entries.next() : null;
+        }
+        return builder.build();
+    }
+
+    private String decodeTitle(int id) {
+        int start = titleOffsets[id];
+        return new String(titles, start, titleOffsets[id + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    // A read-only list of the courses, creating each one when it is asked for.
+    private final class CourseList extends AbstractList<Course> implements RandomAccess {
+        @Override
+        public Course get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size());
+            }
+            return CompactCourseCatalog.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return CompactCourseCatalog.this.size();
+        }
+    }
+
+    // Encodes courses added in the order of their offeringNames.
+    private static final class Builder {
+        private final List<String> prefixes = new ArrayList<>();
+        private final Map<String, Integer> prefixIdsByPrefix = new HashMap<>();
+        private final Map<String, Integer> titleIdsByTitle = new HashMap<>();
+        private final ByteArrayOutputStream suffixes = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream titles = new ByteArrayOutputStream();
+        private int[] prefixIds;
+        private int[] suffixOffsets;
+        private int[] titleIds;
+        private int[] titleOffsets = new int[16];
+        private int size;
+
+        private Builder(int capacity) {
+            prefixIds = new int[capacity];
+            suffixOffsets = new int[capacity + 1];
+            titleIds = new int[capacity];
+        }
+
+        private void add(String offeringName, String title) {
+            if (size == titleIds.length) {
+                int capacity = Math.max(16, size * 2);
+                prefixIds = Arrays.copyOf(prefixIds, capacity);
+                suffixOffsets = Arrays.copyOf(suffixOffsets, capacity + 1);
+                titleIds = Arrays.copyOf(titleIds, capacity);
+            }
+            int split = offeringName.lastIndexOf('.') + 1;
+            String prefix = offeringName.substring(0, split);
+            Integer prefixId = prefixIdsByPrefix.get(prefix);
+            if (prefixId == null) {
+                prefixId = prefixes.size();
+                prefixes.add(prefix);
+                prefixIdsByPrefix.put(prefix, prefixId);
+            }
+            prefixIds[size] = prefixId;
+            suffixes.writeBytes(offeringName.substring(split).getBytes(StandardCharsets.UTF_8));
+            suffixOffsets[size + 1] = suffixes.size();
+
+            Integer titleId = titleIdsByTitle.get(title);
+            if (titleId == null) {
+                titleId = titleIdsByTitle.size();
+                titleIdsByTitle.put(title, titleId);
+                titles.writeBytes(title.getBytes(StandardCharsets.UTF_8));
+                if (titleId + 2 > titleOffsets.length) {
+                    titleOffsets = Arrays.copyOf(titleOffsets, titleOffsets.length * 2);
+                }
+                titleOffsets[titleId + 1] = titles.size();
+            }
+            titleIds[size] = titleId;
+            size++;
+        }
+
+        private CompactCourseCatalog build() {
+            return new CompactCourseCatalog(this);
+        }
+    }
+}
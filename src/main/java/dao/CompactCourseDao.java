@@ -0,0 +1,319 @@
+package dao;
+
+import exceptions.DaoException;
+import model.Course;
+import model.CourseChange;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A dao.CourseDao that keeps all the courses in memory in a dao.CompactCourseCatalog, for deployments without a
+ * database whose catalog is too large to keep as one object graph (see dao.InMemoryCourseDao).
+ * <p>
+ * The catalog is immutable, so writes go to a small sorted map of the courses written or deleted since it was built,
+ * which reads look at first. Once that map grows past an eighth of the catalog, the two are merged into a new catalog.
+ * Reads never block: they take the catalog and the map of changes together, and merge them in the order of
+ * offeringNames. Listing all the courses when none has been written since the last merge returns a view of the
+ * catalog, so no model.Course is created for the courses nobody looks at.
+ * </p>
+ * <p>
+ * As in dao.InMemoryCourseDao, every write is given the next version and the latest change to each course is kept
+ * for readChanges; the courses the store was built with have the first version.
+ * </p>
+ */
+public class CompactCourseDao implements CourseDao {
+
+    private static final Course DELETED = new Course("", ""); // marks a deleted course in the changes; by identity
+    private static final long BUILT_VERSION = 1;
+    private static final int MIN_COMPACTION_SIZE = 1024;
+
+    private volatile State state;
+    private final String builtAt = Instant.now().toString();
+    private final Map<String, CourseChange> latestChanges = new ConcurrentHashMap<>(); // written under the lock
+    private final ConcurrentSkipListMap<Long, CourseChange> changesByVersion = new ConcurrentSkipListMap<>();
+    private volatile long version = BUILT_VERSION; // the version of the latest change in changesByVersion
+    private final LongAdder compactions = new LongAdder();
+
+    /**
+     * Construct dao.CompactCourseDao.
+     *
+     * @param courses The initial courses, e.g. util.DataStore#sampleCourses().
+     * @throws DaoException if a course has no offeringName or no title.
+     */
+    public CompactCourseDao(Collection<Course> courses) throws DaoException {
+        state = new State(CompactCourseCatalog.of(courses));
+    }
+
+    /**
+     * Create a dao.CompactCourseDao with the courses of a snapshot file.
+     *
+     * @param snapshot A JSON array of courses, in the format returned by GET /api/courses.
+     * @return a dao.CompactCourseDao with the courses of the snapshot.
+     * @throws DaoException if the snapshot cannot be read.
+     */
+    public static CompactCourseDao fromSnapshot(Path snapshot) throws DaoException {
+        return new CompactCourseDao(InMemoryCourseDao.readSnapshot(snapshot));
+    }
+
+    @Override
+    public synchronized Course create(String offeringName, String title) throws DaoException {
+        if (offeringName == null || title == null) {
+            throw new DaoException("Unable to create a course without an offering name and a title", null);
+        }
+        if (read(offeringName) != null) {
+            throw new DaoException("A course with offeringName " + offeringName + " already exists", null);
+        }
+        Course course = put(new Course(offeringName, title));
+        compactIfNeeded();
+        return course;
+    }
+
+    @Override
+    public synchronized List<UpsertOutcome> upsertAll(List<Course> courses) throws DaoException {
+        for (Course course : courses) {
+            if (course.getOfferingName() == null || course.getTitle() == null) {
+                throw new DaoException("Unable to write a course without an offering name and a title", null);
+            }
+        }
+        // A course listed more than once is written once, with its last title.
+        Map<String, Course> latest = new LinkedHashMap<>();
+        for (Course course : courses) {
+            latest.put(course.getOfferingName(), course);
+        }
+        Map<String, UpsertOutcome> written = new HashMap<>();
+        for (Course course : latest.values()) {
+            written.put(course.getOfferingName(), UpsertOutcome.of(read(course.getOfferingName()), course));
+            put(course);
+        }
+        compactIfNeeded();
+        List<UpsertOutcome> outcomes = new ArrayList<>(courses.size());
+        for (Course course : courses) {
+            outcomes.add(written.get(course.getOfferingName()));
+        }
+        return outcomes;
+    }
+
+    @Override
+    public Course read(String offeringName) throws DaoException {
+        return offeringName == null ? null : state.read(offeringName);
+    }
+
+    @Override
+    public List<Course> readMany(Collection<String> offeringNames) throws DaoException {
+        State current = state;
+        List<Course> found = new ArrayList<>();
+        for (String offeringName : new LinkedHashSet<>(offeringNames)) {
+            Course course = offeringName == null ? null : current.read(offeringName);
+            if (course != null) {
+                found.add(course);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<Course> readAll() throws DaoException {
+        State current = state;
+        if (current.changes.isEmpty()) {
+            return current.catalog.asList();
+        }
+        List<Course> courses = new ArrayList<>(current.catalog.size() + current.changes.size());
+        current.scan(null, null, courses::add);
+        return courses;
+    }
+
+    @Override
+    public void streamAll(Consumer<? super Course> action) throws DaoException {
+        state.scan(null, null, course -> {
+            action.accept(course);
+            return true;
+        });
+    }
+
+    @Override
+    public List<Course> readAll(String titleQuery) throws DaoException {
+        return readPage(titleQuery, null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Course> readPage(String after, int limit) throws DaoException {
+        return readPage(null, after, limit);
+    }
+
+    @Override
+    public List<Course> readPage(String titleQuery, String after, int limit) throws DaoException {
+        List<Course> page = new ArrayList<>();
+        if (limit > 0) {
+            state.scan(titleQuery, after, course -> page.add(course) && page.size() < limit);
+        }
+        return page;
+    }
+
+    @Override
+    public CourseChanges readChanges(long since) throws DaoException {
+        // Changes are added before the version is published, so none up to the version read can still be missed.
+        long current = version;
+        if (since >= current) {
+            return new CourseChanges(new ArrayList<>(), since);
+        }
+        List<CourseChange> changes = new ArrayList<>();
+        if (since < BUILT_VERSION) {
+            // The courses never written since the store was built; the others are in the changes below.
+            CompactCourseCatalog catalog = state.catalog;
+            for (int i = 0; i < catalog.size(); i++) {
+                String offeringName = catalog.getOfferingName(i);
+                if (!latestChanges.containsKey(offeringName)) {
+                    changes.add(new CourseChange(offeringName, catalog.getTitle(i), BUILT_VERSION, builtAt));
+                }
+            }
+        }
+        changes.addAll(changesByVersion.subMap(Math.max(since, BUILT_VERSION), false, current, true).values());
+        return new CourseChanges(changes, current);
+    }
+
+    @Override
+    public synchronized Course update(String offeringName, String title) throws DaoException {
+        if (read(offeringName) == null) {
+            return null;
+        }
+        if (title == null) {
+            throw new DaoException("Unable to update the course without a title", null);
+        }
+        Course course = put(new Course(offeringName, title));
+        compactIfNeeded();
+        return course;
+    }
+
+    @Override
+    public synchronized Course delete(String offeringName) throws DaoException {
+        Course course = read(offeringName);
+        if (course != null) {
+            state.changes.put(offeringName, DELETED);
+            record(offeringName, null);
+            compactIfNeeded();
+        }
+        return course;
+    }
+
+    /**
+     * Merge the courses written since the catalog was built into a new catalog now.
+     */
+    public synchronized void compact() {
+        State current = state;
+        if (!current.changes.isEmpty()) {
+            state = new State(current.catalog.merge(current.changes, DELETED));
+            compactions.increment();
+        }
+    }
+
+    /**
+     * Get the statistics of the catalog (see dao.CompactCourseCatalog#getStats), along with the number of courses
+     * written since it was built and of merges.
+     *
+     * @return the statistics, by name.
+     */
+    public Map<String, Long> getStats() {
+        State current = state;
+        Map<String, Long> stats = new LinkedHashMap<>(current.catalog.getStats());
+        stats.put("pendingChanges", (long) current.changes.size());
+        stats.put("compactions", compactions.sum());
+        return stats;
+    }
+
+    // Write a course to the changes unless it is already there; the caller holds the lock.
+    private Course put(Course course) {
+        if (!course.equals(read(course.getOfferingName()))) {
+            state.changes.put(course.getOfferingName(), course);
+            record(course.getOfferingName(), course.getTitle());
+        }
+        return course;
+    }
+
+    // Record the latest change to a course, with the next version; the caller holds the lock.
+    private void record(String offeringName, String title) {
+        long next = version + 1;
+        CourseChange change = new CourseChange(offeringName, title, next, Instant.now().toString());
+        changesByVersion.put(next, change);
+        CourseChange previous = latestChanges.put(offeringName, change);
+        if (previous != null) {
+            changesByVersion.remove(previous.getVersion());
+        }
+        version = next;
+    }
+
+    // Merge the changes into the catalog once there are enough of them; the caller holds the lock.
+    private void compactIfNeeded() {
+        State current = state;
+        if (current.changes.size() > Math.max(MIN_COMPACTION_SIZE, current.catalog.size() / 8)) {
+            compact();
+        }
+    }
+
+    // A catalog along with the courses written (or deleted) since it was built, read together.
+    private static final class State {
+        private final CompactCourseCatalog catalog;
+        private final ConcurrentSkipListMap<String, Course> changes = new ConcurrentSkipListMap<>();
+
+        private State(CompactCourseCatalog catalog) {
+            this.catalog = catalog;
+        }
+
+        private Course read(String offeringName) {
+            Course changed = changes.get(offeringName);
+            if (changed != null) {
+                return changed == DELETED ? null : changed;
+            }
+            int index = catalog.indexOf(offeringName);
+            return index < 0 ? null : catalog.get(index);
+        }
+
+        // Go through the courses in the order of offeringNames, from the one after "after" (if not null), keeping
+        // the ones whose title matches titleQuery (if not null), until action returns false.
+        private void scan(String titleQuery, String after, Predicate<Course> action) {
+            TitleQuery query = titleQuery == null ? null : TitleQuery.parse(titleQuery);
+            boolean[] titleMatches = query == null ? null : catalog.titlesMatching(query);
+            int index = 0;
+            if (after != null) {
+                index = catalog.indexOf(after);
+                index = index < 0 ? -index - 1 : index + 1;
+            }
+            Iterator<Map.Entry<String, Course>> entries = (after == null ? changes : changes.tailMap(after, false))
+                    .entrySet().iterator();
+            Map.Entry<String, Course> entry = entries.hasNext() ? entries.next() : null;
+            while (index < catalog.size() || entry != null) {
+                int cmp = entry == null ? -1 : index == catalog.size() ? 1 : -catalog.compareTo(entry.getKey(), index);
+                if (cmp < 0) {
+                    if ((titleMatches == null || titleMatches[catalog.getTitleId(index)])
+                            && !action.test(catalog.get(index))) {
+                        return;
+                    }
+                    index++;
+                    continue;
+                }
+                Course course = entry.getValue();
+                if (course != DELETED && (query == null || query.matches(course.getTitle()))
+                        && !action.test(course)) {
+                    return;
+                }
+                if (cmp == 0) {
+                    index++;
+                }
+                entry = entries.hasNext() ? entries.next() : null;
+            }
+        }
+    }
+}
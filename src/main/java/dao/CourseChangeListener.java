@@ -0,0 +1,17 @@
+package dao;
+
+import model.Course;
+
+/**
+ * A callback for changes made to the courses through a dao.ObservableCourseDao.
+ */
+public interface CourseChangeListener {
+
+    /**
+     * Called after a course is created, updated or deleted.
+     *
+     * @param offeringName The alphanumeric code of the course that changed.
+     * @param course The course as it is now; null if it was deleted.
+     */
+    void courseChanged(String offeringName, Course course);
+}
@@ -0,0 +1,309 @@
+package dao;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import exceptions.DaoException;
+import model.Course;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the in-process state of this instance coherent with the writes made by every instance sharing its database.
+ * <p>
+ * Triggers on the courses table (see util.Database) send a notification on the "course_changes" channel for every
+ * statement that changes courses: a version number from a sequence, along with the offeringNames of the courses
+ * that changed, or no offeringName when a statement changed too many of them (e.g. a bulk reload). This object
+ * listens to the channel on a connection of its own and, within milliseconds of a commit, drops the changed
+ * courses from the cache, reads them again and tells the listeners of the dao.ObservableCourseDao (listings and
+ * search indexes) about the ones that really changed. It reads everything again whenever it (re)connects, since
+ * notifications sent while it was not listening are lost. Version numbers are not gapless (a rolled back write
+ * uses one up) nor delivered in order, so they only tell how recent the state of an instance is.
+ * </p>
+ * <p>
+ * Writes made through this instance reach the listeners first through the dao.ObservableCourseDao; register this
+ * object as its last listener, so it reads such a course again shortly after, in case the listeners were told
+ * about it after a write from another instance overtook it. The courses are read without holding the lock that
+ * such writes take, so a write never waits for a read of the database; a course written through this instance
+ * while it was being read is left for the next check rather than published from the read.
+ * </p>
+ */
+public class CourseChangeSubscriber implements CourseChangeListener, AutoCloseable {
+
+    /**
+     * The channel the triggers on the courses table notify.
+     */
+    public static final String CHANNEL = "course_changes";
+
+    private static final Logger LOG = LoggerFactory.getLogger(CourseChangeSubscriber.class);
+    private static final int POLL_TIMEOUT_MILLIS = 500;
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    private final DataSource dataSource;
+    private final CourseDao store;
+    private final ObservableCourseDao observable;
+    private final CachingCourseDao cache;
+    private final Gson gson = new Gson();
+    private final Thread thread = new Thread(this::listen, "course-changes");
+
+    // offeringName -> the course as the listeners know it; guarded by this
+    private final Map<String, Course> known = new HashMap<>();
+    private final Set<String> unchecked = new LinkedHashSet<>(); // guarded by this; written through this instance
+    private boolean firing; // guarded by this; true while this object notifies the listeners
+    private boolean synced; // guarded by this; true once known holds what the listeners know
+    private volatile boolean closed;
+    private volatile Connection connection;
+
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder notifications = new LongAdder();
+    private final LongAdder changes = new LongAdder();
+    private final LongAdder resyncs = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * Construct dao.CourseChangeSubscriber.
+     *
+     * @param dataSource Where to open the connection to listen on; it is held for as long as this object runs, so
+     *     it should not come from the connection pool.
+     * @param store The dao.CourseDao to read changed courses from; it should not cache or coalesce reads.
+     * @param observable The dao.ObservableCourseDao whose listeners to notify.
+     * @param cache The cache to drop changed courses from.
+     */
+    public CourseChangeSubscriber(DataSource dataSource, CourseDao store, ObservableCourseDao observable,
+                                  CachingCourseDao cache) {
+        this.dataSource = dataSource;
+        this.store = store;
+        this.observable = observable;
+        this.cache = cache;
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Start listening, then read all the courses, then keep listening on a thread of its own.
+     * <p>
+     * Call this before building the state kept up to date by the listeners, so that no write is missed between
+     * the time it is built and the time this object starts listening.
+     * </p>
+     *
+     * @throws DaoException if the database cannot be listened to.
+     */
+    public void start() throws DaoException {
+        try {
+            connect();
+        } catch (SQLException ex) {
+            throw new DaoException("Unable to listen for course changes", ex);
+        }
+        thread.start();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        disconnect();
+    }
+
+    @Override
+    public synchronized void courseChanged(String offeringName, Course course) {
+        if (firing) {
+            return;
+        }
+        // The listeners were just told about course; check soon that it is still the latest one.
+        remember(offeringName, course);
+        unchecked.add(offeringName);
+    }
+
+    /**
+     * Get the number of notifications and changes handled so far, and the latest version seen.
+     *
+     * @return the statistics, by name.
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("notifications", notifications.sum());
+        stats.put("changes", changes.sum());
+        stats.put("resyncs", resyncs.sum());
+        stats.put("failures", failures.sum());
+        stats.put("version", version.get());
+        return stats;
+    }
+
+    // Listen for notifications until closed, reconnecting after failures.
+    private void listen() {
+        while (!closed) {
+            try {
+                if (connection == null) {
+                    connect();
+                }
+                PGNotification[] received = connection.unwrap(PGConnection.class)
+                        .getNotifications(POLL_TIMEOUT_MILLIS);
+                handle(received == null ? new PGNotification[0] : received);
+            } catch (SQLException | RuntimeException ex) {
+                if (closed) {
+                    break;
+                }
+                failures.increment();
+                LOG.warn("Lost the course change notifications; reconnecting", ex);
+                disconnect();
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    break;
+                }
+            }
+        }
+        disconnect();
+    }
+
+    // Open a connection, listen on it, then read everything again since notifications may have been missed.
+    private void connect() throws SQLException {
+        Connection conn = dataSource.getConnection();
+        try {
+            try (Statement statement = conn.createStatement()) {
+                statement.execute("LISTEN " + CHANNEL);
+            }
+            connection = conn;
+            resync();
+        } catch (SQLException | RuntimeException ex) {
+            connection = null;
+            conn.close();
+            throw ex;
+        }
+    }
+
+    private void disconnect() {
+        Connection conn = connection;
+        connection = null;
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException ex) {
+                // The connection is dropped anyway.
+            }
+        }
+    }
+
+    // Apply the changes announced by a burst of notifications, and check the writes made through this instance.
+    private void handle(PGNotification[] received) {
+        Set<String> offeringNames = new LinkedHashSet<>();
+        boolean all = false;
+        for (PGNotification notification : received) {
+            notifications.increment();
+            Change change;
+            try {
+                change = gson.fromJson(notification.getParameter(), Change.class);
+            } catch (JsonParseException ex) {
+                change = null;
+            }
+            if (change != null) {
+                version.accumulateAndGet(change.version, Math::max);
+            }
+            if (change == null || change.offeringNames == null) {
+                all = true;
+            } else {
+                offeringNames.addAll(change.offeringNames);
+            }
+        }
+        if (all) {
+            resync();
+            return;
+        }
+        for (String offeringName : offeringNames) {
+            cache.invalidate(offeringName);
+        }
+        synchronized (this) {
+            offeringNames.addAll(unchecked);
+            unchecked.clear();
+        }
+        if (offeringNames.isEmpty()) {
+            return;
+        }
+        Map<String, Course> fresh = new HashMap<>();
+        for (Course course : store.readMany(offeringNames)) {
+            fresh.put(course.getOfferingName(), course);
+        }
+        synchronized (this) {
+            for (String offeringName : offeringNames) {
+                publishUnlessWritten(offeringName, fresh.get(offeringName));
+            }
+        }
+    }
+
+    // Read everything again, e.g. after a bulk reload; the first time, this only learns what the listeners know.
+    private void resync() {
+        resyncs.increment();
+        cache.invalidateAll();
+        synchronized (this) {
+            unchecked.clear(); // read below
+        }
+        Map<String, Course> fresh = new HashMap<>();
+        store.streamAll(course -> fresh.put(course.getOfferingName(), course));
+        synchronized (this) {
+            if (!synced) {
+                fresh.forEach((offeringName, course) -> {
+                    if (!unchecked.contains(offeringName)) {
+                        known.put(offeringName, course);
+                    }
+                });
+                synced = true;
+                return;
+            }
+            for (String offeringName : new ArrayList<>(known.keySet())) {
+                if (!fresh.containsKey(offeringName)) {
+                    publishUnlessWritten(offeringName, null);
+                }
+            }
+            fresh.forEach(this::publishUnlessWritten);
+        }
+    }
+
+    // Publish a course read from the store, unless it was written through this instance since it was read: the
+    // listeners already know that write, and the course is read again at the next check. The caller holds the lock.
+    private void publishUnlessWritten(String offeringName, Course course) {
+        if (!unchecked.contains(offeringName)) {
+            publish(offeringName, course);
+        }
+    }
+
+    // Tell the listeners about a course if they do not know it yet; the caller holds the lock.
+    private void publish(String offeringName, Course course) {
+        if (!remember(offeringName, course)) {
+            return;
+        }
+        changes.increment();
+        firing = true;
+        try {
+            observable.fireCourseChanged(offeringName, course);
+        } finally {
+            firing = false;
+        }
+    }
+
+    // Record what the listeners know about a course; return whether it changed.
+    private boolean remember(String offeringName, Course course) {
+        Course previous = course == null ? known.remove(offeringName) : known.put(offeringName, course);
+        return !Objects.equals(previous, course);
+    }
+
+    // The payload of a notification.
+    private static final class Change {
+        private long version;
+        private List<String> offeringNames; // null when too many courses changed to list them
+    }
+}
@@ -0,0 +1,43 @@
+package dao;
+
+import model.CourseChange;
+
+import java.util.List;
+
+/**
+ * The changes to the courses read by dao.CourseDao#readChanges, along with the version they bring a client up to.
+ */
+public final class CourseChanges {
+
+    private final List<CourseChange> changes;
+    private final long version;
+
+    /**
+     * Construct dao.CourseChanges.
+     *
+     * @param changes The latest change to each course that changed, ordered by version.
+     * @param version The version to read the next changes since.
+     */
+    public CourseChanges(List<CourseChange> changes, long version) {
+        this.changes = changes;
+        this.version = version;
+    }
+
+    /**
+     * Get the latest change to each course that changed.
+     *
+     * @return the changes, ordered by version.
+     */
+    public List<CourseChange> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Get the version a client that applied the changes is up to; pass it to readChanges to read the next ones.
+     *
+     * @return the version.
+     */
+    public long getVersion() {
+        return version;
+    }
+}
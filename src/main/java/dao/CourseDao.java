@@ -3,7 +3,14 @@ package dao;
 import model.Course;
 import exceptions.DaoException;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object for model.Course.
@@ -20,6 +27,39 @@ public interface CourseDao {
      */
     Course create(String offeringName, String title) throws DaoException;
 
+    /**
+     * Create the courses that do not exist and update the title of the ones that do.
+     * <p>
+     * A course listed more than once is written once, with its last title. The default implementation writes the
+     * courses one at a time; implementations backed by a database should write them all in a single transaction.
+     * </p>
+     *
+     * @param courses The courses to write.
+     * @return What happened to each course, in the same order as courses.
+     * @throws DaoException A generic exception for CRUD operations.
+     */
+    default List<UpsertOutcome> upsertAll(List<Course> courses) throws DaoException {
+        Map<String, Course> latest = new LinkedHashMap<>();
+        for (Course course : courses) {
+            latest.put(course.getOfferingName(), course);
+        }
+        Map<String, UpsertOutcome> outcomes = new HashMap<>();
+        for (Course course : latest.values()) {
+            UpsertOutcome outcome = UpsertOutcome.of(read(course.getOfferingName()), course);
+            if (outcome == UpsertOutcome.CREATED) {
+                create(course.getOfferingName(), course.getTitle());
+            } else if (outcome == UpsertOutcome.UPDATED) {
+                update(course.getOfferingName(), course.getTitle());
+            }
+            outcomes.put(course.getOfferingName(), outcome);
+        }
+        List<UpsertOutcome> listed = new ArrayList<>(courses.size());
+        for (Course course : courses) {
+            listed.add(outcomes.get(course.getOfferingName()));
+        }
+        return listed;
+    }
+
     /**
      * Read a course provided its offeringName.
      *
@@ -29,6 +69,28 @@ public interface CourseDao {
      */
     Course read(String offeringName) throws DaoException;
 
+    /**
+     * Read the courses with any of the given offeringNames.
+     * <p>
+     * The default implementation reads the courses one at a time; implementations backed by a database should
+     * read them all with a single query.
+     * </p>
+     *
+     * @param offeringNames The course alphanumeric codes; the ones repeated, null or of no course are ignored.
+     * @return The courses found, in the order of offeringNames.
+     * @throws DaoException A generic exception for CRUD operations.
+     */
+    default List<Course> readMany(Collection<String> offeringNames) throws DaoException {
+        List<Course> found = new ArrayList<>();
+        for (String offeringName : new LinkedHashSet<>(offeringNames)) {
+            Course course = offeringName == null ? null : read(offeringName);
+            if (course != null) {
+                found.add(course);
+            }
+        }
+        return found;
+    }
+
     /**
      * Read all courses from the database.
      *
@@ -38,14 +100,58 @@ public interface CourseDao {
     List<Course> readAll() throws DaoException;
 
     /**
-     * Read all courses from the database with title containing titleQuery.
+     * Read all courses from the database one at a time, without holding them all in memory at once.
+     *
+     * @param action Called with each course, in the order they are read.
+     * @throws DaoException A generic exception for CRUD operations.
+     */
+    default void streamAll(Consumer<? super Course> action) throws DaoException {
+        readAll().forEach(action);
+    }
+
+    /**
+     * Read all courses from the database with title matching titleQuery.
      *
-     * @param titleQuery A search term.
+     * @param titleQuery A search query, matched as described in dao.TitleQuery.
      * @return All courses retrieved.
      * @throws DaoException A generic exception for CRUD operations.
      */
     List<Course> readAll(String titleQuery) throws DaoException;
 
+    /**
+     * Read a page of courses ordered by offeringName.
+     *
+     * @param after Only courses whose offeringName sorts after this one are read; null to start from the first course.
+     * @param limit The maximum number of courses to read.
+     * @return At most limit courses.
+     * @throws DaoException A generic exception for CRUD operations.
+     */
+    List<Course> readPage(String after, int limit) throws DaoException;
+
+    /**
+     * Read a page of the courses with title matching titleQuery, ordered by offeringName.
+     *
+     * @param titleQuery A search query, matched as described in dao.TitleQuery.
+     * @param after Only courses whose offeringName sorts after this one are read; null to start from the first course.
+     * @param limit The maximum number of courses to read.
+     * @return At most limit courses.
+     * @throws DaoException A generic exception for CRUD operations.
+     */
+    List<Course> readPage(String titleQuery, String after, int limit) throws DaoException;
+
+    /**
+     * Read the courses created, updated or deleted since a version, e.g. to keep a copy of the courses in sync.
+     * <p>
+     * Only the latest change to each course is read, and a deleted course is read as a tombstone. A change is only
+     * read once no write with a lower version can still be committed, so a client that reads the changes since the
+     * version returned by its previous call never misses one.
+     * </p>
+     * @param since The version returned by the previous call; 0 to read every course.
+     * @return The changes made since that version, and the version to read the next ones since.
+     * @throws DaoException A generic exception for CRUD operations.
+     */
+    CourseChanges readChanges(long since) throws DaoException;
+
     /**
      * Update the title of a courses provided its offeringName.
      *
@@ -0,0 +1,227 @@
+package dao;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import exceptions.DaoException;
+import model.Course;
+import model.CourseChange;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * A dao.CourseDao that keeps all the courses in memory, for deployments without a database.
+ * <p>
+ * Reads never block: courses are looked up in a concurrent hash map and listed, ordered by offeringName, from a
+ * concurrent sorted map. Writes are serialized so both maps always change together.
+ * </p>
+ * <p>
+ * Every course written or deleted is given the next version, and its latest change (a tombstone for a deleted
+ * course) is kept in a third map ordered by version, so readChanges only goes through the changes asked for.
+ * </p>
+ */
+public class InMemoryCourseDao implements CourseDao {
+
+    private final Map<String, Course> courses = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Course> sortedCourses = new ConcurrentSkipListMap<>();
+    private final Map<String, CourseChange> latestChanges = new HashMap<>(); // guarded by this
+    private final ConcurrentSkipListMap<Long, CourseChange> changesByVersion = new ConcurrentSkipListMap<>();
+    private volatile long version; // the version of the latest change in changesByVersion
+
+    /**
+     * Construct an empty dao.InMemoryCourseDao.
+     */
+    public InMemoryCourseDao() {
+    }
+
+    /**
+     * Construct dao.InMemoryCourseDao.
+     *
+     * @param courses The initial courses, e.g. util.DataStore#sampleCourses().
+     */
+    public InMemoryCourseDao(Collection<Course> courses) {
+        for (Course course : courses) {
+            put(course);
+        }
+    }
+
+    /**
+     * Create a dao.InMemoryCourseDao with the courses of a snapshot file.
+     *
+     * @param snapshot A JSON array of courses, in the format returned by GET /api/courses.
+     * @return a dao.InMemoryCourseDao with the courses of the snapshot.
+     * @throws DaoException if the snapshot cannot be read.
+     */
+    public static InMemoryCourseDao fromSnapshot(Path snapshot) throws DaoException {
+        return new InMemoryCourseDao(readSnapshot(snapshot));
+    }
+
+    // Read the courses of a snapshot file.
+    static List<Course> readSnapshot(Path snapshot) throws DaoException {
+        try (Reader reader = Files.newBufferedReader(snapshot, StandardCharsets.UTF_8)) {
+            List<Course> courses = new Gson().fromJson(reader, new TypeToken<List<Course>>() { }.getType());
+            return courses == null ? List.of() : courses;
+        } catch (IOException | JsonParseException ex) {
+            throw new DaoException("Unable to read the courses from " + snapshot, ex);
+        }
+    }
+
+    @Override
+    public synchronized Course create(String offeringName, String title) throws DaoException {
+        if (offeringName == null || title == null) {
+            throw new DaoException("Unable to create a course without an offering name and a title", null);
+        }
+        if (courses.containsKey(offeringName)) {
+            throw new DaoException("A course with offeringName " + offeringName + " already exists", null);
+        }
+        return put(new Course(offeringName, title));
+    }
+
+    @Override
+    public synchronized List<UpsertOutcome> upsertAll(List<Course> courses) throws DaoException {
+        for (Course course : courses) {
+            if (course.getOfferingName() == null || course.getTitle() == null) {
+                throw new DaoException("Unable to write a course without an offering name and a title", null);
+            }
+        }
+        // A course listed more than once is written once, with its last title.
+        Map<String, Course> latest = new LinkedHashMap<>();
+        for (Course course : courses) {
+            latest.put(course.getOfferingName(), course);
+        }
+        Map<String, UpsertOutcome> written = new HashMap<>();
+        for (Course course : latest.values()) {
+            written.put(course.getOfferingName(), UpsertOutcome.of(this.courses.get(course.getOfferingName()), course));
+            put(course);
+        }
+        List<UpsertOutcome> outcomes = new ArrayList<>(courses.size());
+        for (Course course : courses) {
+            outcomes.add(written.get(course.getOfferingName()));
+        }
+        return outcomes;
+    }
+
+    @Override
+    public Course read(String offeringName) throws DaoException {
+        return offeringName == null ? null : courses.get(offeringName);
+    }
+
+    @Override
+    public List<Course> readMany(Collection<String> offeringNames) throws DaoException {
+        List<Course> found = new ArrayList<>();
+        for (String offeringName : new LinkedHashSet<>(offeringNames)) {
+            Course course = offeringName == null ? null : courses.get(offeringName);
+            if (course != null) {
+                found.add(course);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<Course> readAll() throws DaoException {
+        return new ArrayList<>(sortedCourses.values());
+    }
+
+    @Override
+    public void streamAll(Consumer<? super Course> action) throws DaoException {
+        sortedCourses.values().forEach(action);
+    }
+
+    @Override
+    public List<Course> readAll(String titleQuery) throws DaoException {
+        return readPage(titleQuery, null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Course> readPage(String after, int limit) throws DaoException {
+        return readPage(null, after, limit);
+    }
+
+    @Override
+    public List<Course> readPage(String titleQuery, String after, int limit) throws DaoException {
+        TitleQuery query = titleQuery == null ? null : TitleQuery.parse(titleQuery);
+        Collection<Course> candidates = after == null
+                ? sortedCourses.values()
+                : sortedCourses.tailMap(after, false).values();
+        List<Course> page = new ArrayList<>();
+        for (Course course : candidates) {
+            if (page.size() == limit) {
+                break;
+            }
+            if (query == null || query.matches(course.getTitle())) {
+                page.add(course);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public CourseChanges readChanges(long since) throws DaoException {
+        // Changes are added before the version is published, so none up to the version read can still be missed.
+        long current = version;
+        if (since >= current) {
+            return new CourseChanges(new ArrayList<>(), since);
+        }
+        return new CourseChanges(new ArrayList<>(changesByVersion.subMap(since, false, current, true).values()),
+                current);
+    }
+
+    @Override
+    public synchronized Course update(String offeringName, String title) throws DaoException {
+        if (read(offeringName) == null) {
+            return null;
+        }
+        if (title == null) {
+            throw new DaoException("Unable to update the course without a title", null);
+        }
+        return put(new Course(offeringName, title));
+    }
+
+    @Override
+    public synchronized Course delete(String offeringName) throws DaoException {
+        Course course = read(offeringName);
+        if (course != null) {
+            courses.remove(offeringName);
+            sortedCourses.remove(offeringName);
+            record(offeringName, null);
+        }
+        return course;
+    }
+
+    // Add or replace a course in the maps; callers other than constructors must hold the lock.
+    private Course put(Course course) {
+        sortedCourses.put(course.getOfferingName(), course);
+        if (!course.equals(courses.put(course.getOfferingName(), course))) {
+            record(course.getOfferingName(), course.getTitle());
+        }
+        return course;
+    }
+
+    // Record the latest change to a course, with the next version; the caller holds the lock.
+    private void record(String offeringName, String title) {
+        long next = version + 1;
+        CourseChange change = new CourseChange(offeringName, title, next, Instant.now().toString());
+        changesByVersion.put(next, change);
+        CourseChange previous = latestChanges.put(offeringName, change);
+        if (previous != null) {
+            changesByVersion.remove(previous.getVersion());
+        }
+        version = next;
+    }
+}
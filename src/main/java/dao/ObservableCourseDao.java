@@ -0,0 +1,122 @@
+package dao;
+
+import exceptions.DaoException;
+import model.Course;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * A dao.CourseDao that notifies its listeners of every successful write made through it.
+ */
+public class ObservableCourseDao implements CourseDao {
+
+    private final CourseDao delegate;
+    private final List<CourseChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Construct dao.ObservableCourseDao.
+     *
+     * @param delegate The dao.CourseDao to read from and write to.
+     */
+    public ObservableCourseDao(CourseDao delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Register a listener to be called after each write.
+     *
+     * @param listener The listener.
+     */
+    public void addListener(CourseChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public Course create(String offeringName, String title) throws DaoException {
+        Course course = delegate.create(offeringName, title);
+        fireCourseChanged(offeringName, course);
+        return course;
+    }
+
+    @Override
+    public List<UpsertOutcome> upsertAll(List<Course> courses) throws DaoException {
+        List<UpsertOutcome> outcomes = delegate.upsertAll(courses);
+        for (Course course : courses) {
+            fireCourseChanged(course.getOfferingName(), course);
+        }
+        return outcomes;
+    }
+
+    @Override
+    public Course read(String offeringName) throws DaoException {
+        return delegate.read(offeringName);
+    }
+
+    @Override
+    public List<Course> readMany(Collection<String> offeringNames) throws DaoException {
+        return delegate.readMany(offeringNames);
+    }
+
+    @Override
+    public List<Course> readAll() throws DaoException {
+        return delegate.readAll();
+    }
+
+    @Override
+    public void streamAll(Consumer<? super Course> action) throws DaoException {
+        delegate.streamAll(action);
+    }
+
+    @Override
+    public List<Course> readAll(String titleQuery) throws DaoException {
+        return delegate.readAll(titleQuery);
+    }
+
+    @Override
+    public List<Course> readPage(String after, int limit) throws DaoException {
+        return delegate.readPage(after, limit);
+    }
+
+    @Override
+    public List<Course> readPage(String titleQuery, String after, int limit) throws DaoException {
+        return delegate.readPage(titleQuery, after, limit);
+    }
+
+    @Override
+    public CourseChanges readChanges(long since) throws DaoException {
+        return delegate.readChanges(since);
+    }
+
+    @Override
+    public Course update(String offeringName, String title) throws DaoException {
+        Course course = delegate.update(offeringName, title);
+        if (course != null) {
+            fireCourseChanged(offeringName, course);
+        }
+        return course;
+    }
+
+    @Override
+    public Course delete(String offeringName) throws DaoException {
+        Course course = delegate.delete(offeringName);
+        if (course != null) {
+            fireCourseChanged(offeringName, null);
+        }
+        return course;
+    }
+
+    /**
+     * Notify the listeners that a course has changed.
+     *
+     * @param offeringName The alphanumeric code of the course that changed.
+     * @param course The course as it is now; null if it was deleted.
+     */
+    public void fireCourseChanged(String offeringName, Course course) {
+        for (CourseChangeListener listener : listeners) {
+            listener.courseChanged(offeringName, course);
+        }
+    }
+}
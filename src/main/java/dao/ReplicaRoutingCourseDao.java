@@ -0,0 +1,204 @@
+package dao;
+
+import exceptions.DaoException;
+import model.Course;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A dao.CourseDao that sends writes to a primary database and spreads reads over its read replicas.
+ * <p>
+ * Reads go to the replicas in turn. A replica that fails a read is taken out of the rotation and the read is tried
+ * on the next one, then on the primary if no replica is left; replicas out of the rotation are checked in the
+ * background and put back once they answer again. Replicas may lag the primary, so a client that needs to read its
+ * own writes should read from getPrimary() for a while after writing. Listing all the courses one at a time
+ * (streamAll) also reads from the primary, since it is used to build state that is then kept up to date from the
+ * writes.
+ * </p>
+ */
+public class ReplicaRoutingCourseDao implements CourseDao, AutoCloseable {
+
+    private final CourseDao primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final long healthCheckInterval;
+    private final ScheduledExecutorService healthChecks;
+
+    private final LongAdder primaryReads = new LongAdder();
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder failovers = new LongAdder();
+
+    /**
+     * Construct dao.ReplicaRoutingCourseDao.
+     *
+     * @param primary The dao.CourseDao of the primary database.
+     * @param replicas The dao.CourseDao of each read replica.
+     * @param healthCheckInterval How often the replicas are checked, once started.
+     */
+    public ReplicaRoutingCourseDao(CourseDao primary, List<CourseDao> replicas, Duration healthCheckInterval) {
+        this.primary = primary;
+        for (CourseDao replica : replicas) {
+            this.replicas.add(new Replica(replica));
+        }
+        healthChecks = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "replica-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.healthCheckInterval = healthCheckInterval.toMillis();
+    }
+
+    /**
+     * Start checking the replicas in the background, putting the ones that failed a read back in the rotation once
+     * they answer again.
+     */
+    public void start() {
+        healthChecks.scheduleWithFixedDelay(this::checkHealth, healthCheckInterval, healthCheckInterval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get the dao.CourseDao of the primary database, which sees every write as soon as it is committed.
+     *
+     * @return the dao.CourseDao of the primary database.
+     */
+    public CourseDao getPrimary() {
+        return primary;
+    }
+
+    @Override
+    public Course create(String offeringName, String title) throws DaoException {
+        return primary.create(offeringName, title);
+    }
+
+    @Override
+    public List<UpsertOutcome> upsertAll(List<Course> courses) throws DaoException {
+        return primary.upsertAll(courses);
+    }
+
+    @Override
+    public Course read(String offeringName) throws DaoException {
+        return route(replica -> replica.read(offeringName));
+    }
+
+    @Override
+    public List<Course> readMany(Collection<String> offeringNames) throws DaoException {
+        return route(replica -> replica.readMany(offeringNames));
+    }
+
+    @Override
+    public List<Course> readAll() throws DaoException {
+        return route(CourseDao::readAll);
+    }
+
+    @Override
+    public void streamAll(Consumer<? super Course> action) throws DaoException {
+        primary.streamAll(action);
+    }
+
+    @Override
+    public List<Course> readAll(String titleQuery) throws DaoException {
+        return route(replica -> replica.readAll(titleQuery));
+    }
+
+    @Override
+    public List<Course> readPage(String after, int limit) throws DaoException {
+        return route(replica -> replica.readPage(after, limit));
+    }
+
+    @Override
+    public List<Course> readPage(String titleQuery, String after, int limit) throws DaoException {
+        return route(replica -> replica.readPage(titleQuery, after, limit));
+    }
+
+    @Override
+    public CourseChanges readChanges(long since) throws DaoException {
+        return route(replica -> replica.readChanges(since));
+    }
+
+    @Override
+    public Course update(String offeringName, String title) throws DaoException {
+        return primary.update(offeringName, title);
+    }
+
+    @Override
+    public Course delete(String offeringName) throws DaoException {
+        return primary.delete(offeringName);
+    }
+
+    @Override
+    public void close() {
+        healthChecks.shutdownNow();
+    }
+
+    /**
+     * Get the number of reads served by the primary and by the replicas, of reads that failed over, and of replicas
+     * currently in the rotation.
+     *
+     * @return the statistics, by name.
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("primaryReads", primaryReads.sum());
+        stats.put("replicaReads", replicaReads.sum());
+        stats.put("failovers", failovers.sum());
+        stats.put("healthyReplicas", replicas.stream().filter(replica -> replica.healthy).count());
+        return stats;
+    }
+
+    /**
+     * Check every replica now, taking the ones that fail out of the rotation and putting the others back.
+     */
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            try {
+                replica.courseDao.readPage(null, 1);
+                replica.healthy = true;
+            } catch (DaoException ex) {
+                replica.healthy = false;
+            }
+        }
+    }
+
+    // Make a read on the next healthy replica, failing over to the others and then to the primary.
+    private <T> T route(Function<CourseDao, T> read) {
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                T result = read.apply(replica.courseDao);
+                replicaReads.increment();
+                return result;
+            } catch (DaoException ex) {
+                replica.healthy = false;
+                failovers.increment();
+            }
+        }
+        primaryReads.increment();
+        return read.apply(primary);
+    }
+
+    // A replica along with whether it is in the rotation.
+    private static final class Replica {
+        private final CourseDao courseDao;
+        private volatile boolean healthy = true;
+
+        private Replica(CourseDao courseDao) {
+            this.courseDao = courseDao;
+        }
+    }
+}
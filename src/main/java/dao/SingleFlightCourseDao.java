@@ -0,0 +1,174 @@
+package dao;
+
+import exceptions.DaoException;
+import model.Course;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A dao.CourseDao that lets concurrent identical reads share a single call to another dao.CourseDao.
+ * <p>
+ * The first caller of read, readAll, readPage or readChanges with some arguments makes the call; the callers that
+ * ask for the same thing while it is in flight wait for it and get the same result, or the same exception. Results
+ * are not kept once the call completes, and a write through this object makes the next callers start a new call
+ * rather than join one that may have read the data before the write. Lists returned are shared between callers,
+ * which must not modify them. Reads of many courses at once are passed through.
+ * </p>
+ */
+public class SingleFlightCourseDao implements CourseDao {
+
+    private static final String READ = "read";
+
+    private final CourseDao delegate;
+    // e.g. [read, EN.601.226] or [readPage, data, null, 50] -> the call in flight
+    private final Map<List<Object>, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Construct dao.SingleFlightCourseDao.
+     *
+     * @param delegate The dao.CourseDao to read from and write to.
+     */
+    public SingleFlightCourseDao(CourseDao delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Course create(String offeringName, String title) throws DaoException {
+        try {
+            return delegate.create(offeringName, title);
+        } finally {
+            forget(offeringName);
+        }
+    }
+
+    @Override
+    public List<UpsertOutcome> upsertAll(List<Course> courses) throws DaoException {
+        try {
+            return delegate.upsertAll(courses);
+        } finally {
+            inFlight.clear();
+        }
+    }
+
+    @Override
+    public Course read(String offeringName) throws DaoException {
+        if (offeringName == null) {
+            return delegate.read(null);
+        }
+        return coalesce(() -> delegate.read(offeringName), READ, offeringName);
+    }
+
+    @Override
+    public List<Course> readMany(Collection<String> offeringNames) throws DaoException {
+        return delegate.readMany(offeringNames);
+    }
+
+    @Override
+    public List<Course> readAll() throws DaoException {
+        return coalesce(delegate::readAll, "readAll");
+    }
+
+    @Override
+    public void streamAll(Consumer<? super Course> action) throws DaoException {
+        delegate.streamAll(action);
+    }
+
+    @Override
+    public List<Course> readAll(String titleQuery) throws DaoException {
+        return coalesce(() -> delegate.readAll(titleQuery), "readAll", titleQuery);
+    }
+
+    @Override
+    public List<Course> readPage(String after, int limit) throws DaoException {
+        return coalesce(() -> delegate.readPage(after, limit), "readPage", null, after, limit);
+    }
+
+    @Override
+    public List<Course> readPage(String titleQuery, String after, int limit) throws DaoException {
+        return coalesce(() -> delegate.readPage(titleQuery, after, limit), "readPage", titleQuery, after, limit);
+    }
+
+    @Override
+    public CourseChanges readChanges(long since) throws DaoException {
+        return coalesce(() -> delegate.readChanges(since), "readChanges", since);
+    }
+
+    @Override
+    public Course update(String offeringName, String title) throws DaoException {
+        try {
+            return delegate.update(offeringName, title);
+        } finally {
+            forget(offeringName);
+        }
+    }
+
+    @Override
+    public Course delete(String offeringName) throws DaoException {
+        try {
+            return delegate.delete(offeringName);
+        } finally {
+            forget(offeringName);
+        }
+    }
+
+    /**
+     * Get the number of calls made to the delegate and of calls that joined one in flight instead.
+     *
+     * @return the statistics, by name.
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("calls", calls.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("inFlight", (long) inFlight.size());
+        return stats;
+    }
+
+    // Make the call, or join the identical call in flight.
+    @SuppressWarnings("unchecked")
+    private <T> T coalesce(Supplier<T> call, Object... key) {
+        List<Object> callKey = Arrays.asList(key);
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> theirs = inFlight.putIfAbsent(callKey, mine);
+        if (theirs != null) {
+            coalesced.increment();
+            try {
+                return (T) theirs.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw ex;
+            }
+        }
+        calls.increment();
+        try {
+            T result = call.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(callKey, mine);
+        }
+    }
+
+    // Make the reads that may have missed a write to a course start new calls.
+    private void forget(String offeringName) {
+        inFlight.keySet().removeIf(key -> !READ.equals(key.get(0)) || key.get(1).equals(offeringName));
+    }
+}
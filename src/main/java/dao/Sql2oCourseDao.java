@@ -2,16 +2,61 @@ package dao;
 
 import exceptions.DaoException;
 import model.Course;
+import model.CourseChange;
 import org.sql2o.Connection;
+import org.sql2o.Query;
+import org.sql2o.ResultSetHandler;
 import org.sql2o.Sql2o;
 import org.sql2o.Sql2oException;
 
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
+/**
+ * A dao.CourseDao backed by the "courses" table of a PostgreSQL database.
+ * <p>
+ * Queries name their columns rather than select *, and their rows are mapped to model.Course by hand rather than
+ * through Sql2o's reflection, which would otherwise look up the setters and convert each column of every row.
+ * Each SQL string is constant (or one of a few variants), so the driver's per-connection statement cache keeps them
+ * prepared on the server for as long as the pooled connection lives (see util.Database).
+ * </p>
+ * <p>
+ * Every write sets the version of the courses it changes to the id of its transaction, and a delete leaves a
+ * tombstone with that version in the "course_tombstones" table, so readChanges finds what changed since a version
+ * through the indexes on the versions.
+ * </p>
+ */
 public class Sql2oCourseDao implements CourseDao {
 
+    /**
+     * A statement leaving a tombstone for each offeringName of a table, e.g. the rows returned by a DELETE; format
+     * it with the name of the table.
+     */
+    public static final String TOMBSTONE_SQL = "INSERT INTO course_tombstones(offeringName) SELECT offeringName "
+            + "FROM %s ON CONFLICT (offeringName) DO UPDATE SET version = DEFAULT, deleted_at = DEFAULT";
+
+    private static final int DEFAULT_FETCH_SIZE = 500;
+    private static final String COLUMNS = "offeringName, title";
+    private static final ResultSetHandler<Course> COURSE_MAPPER = Sql2oCourseDao::toCourse;
+    // Map a row returned by upsertAll (offeringName, inserted) to what happened to the course.
+    private static final ResultSetHandler<Map.Entry<String, UpsertOutcome>> OUTCOME_MAPPER = rs -> Map.entry(
+            rs.getString(1), rs.getBoolean(2) ? UpsertOutcome.CREATED : UpsertOutcome.UPDATED);
+    private static final ResultSetHandler<CourseChange> CHANGE_MAPPER = rs -> new CourseChange(
+            rs.getString(1), rs.getString(2), rs.getLong(3), rs.getTimestamp(4).toInstant().toString());
+
     private final Sql2o sql2o;
+    private final int fetchSize;
 
     /**
      * Construct dao.Sql2oCourseDao.
@@ -21,69 +66,218 @@ public class Sql2oCourseDao implements CourseDao {
      *   "courses" with two columns: "offeringName" and "title".
      */
     public Sql2oCourseDao(Sql2o sql2o) {
+        this(sql2o, DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Construct dao.Sql2oCourseDao.
+     *
+     * @param sql2o A Sql2o object is injected as a dependency;
+     *   it is assumed sql2o is connected to a database that  contains a table called
+     *   "courses" with two columns: "offeringName" and "title".
+     * @param fetchSize The number of rows streamAll fetches from the database per round-trip.
+     */
+    public Sql2oCourseDao(Sql2o sql2o, int fetchSize) {
         this.sql2o = sql2o;
+        this.fetchSize = fetchSize;
     }
 
     @Override
     public Course create(String offeringName, String title) throws DaoException {
         String sql = "WITH inserted AS ("
-                + "INSERT INTO courses(offeringName, title) VALUES(:name, :title) RETURNING *"
-                + ") SELECT * FROM inserted;";
+                + "INSERT INTO courses(offeringName, title) VALUES(:name, :title) RETURNING " + COLUMNS
+                + ") SELECT " + COLUMNS + " FROM inserted;";
         try (Connection conn = sql2o.open()) {
             return conn.createQuery(sql)
                     .addParameter("name", offeringName)
                     .addParameter("title", title)
-                    .executeAndFetchFirst(Course.class);
+                    .executeAndFetchFirst(COURSE_MAPPER);
         } catch (Sql2oException ex) {
             throw new DaoException(ex.getMessage(), ex);
         }
     }
 
+    @Override
+    public List<UpsertOutcome> upsertAll(List<Course> courses) throws DaoException {
+        if (courses.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // A course listed more than once is written once, with its last title.
+        Map<String, Course> latest = new LinkedHashMap<>();
+        for (Course course : courses) {
+            latest.put(course.getOfferingName(), course);
+        }
+        // The outcomes come from the statement itself: a row it inserted has no xmax, a row it updated has the id of
+        // this transaction, and a row whose title is already the same is neither updated nor returned. The courses
+        // are written in the order of offeringNames, so concurrent batches lock the rows they share in the same order.
+        String sql = "WITH written AS (INSERT INTO courses(offeringName, title) "
+                + "SELECT * FROM unnest(:names, :titles) AS c(offeringName, title) ORDER BY offeringName "
+                + "ON CONFLICT (offeringName) DO UPDATE SET title = EXCLUDED.title, version = DEFAULT, "
+                + "updated_at = DEFAULT WHERE courses.title IS DISTINCT FROM EXCLUDED.title "
+                + "RETURNING offeringName, xmax = 0 AS inserted) SELECT offeringName, inserted FROM written;";
+        List<String> titles = new ArrayList<>(latest.size());
+        for (Course course : latest.values()) {
+            titles.add(course.getTitle());
+        }
+        try (Connection conn = sql2o.open()) {
+            Array names = conn.getJdbcConnection().createArrayOf("varchar", latest.keySet().toArray());
+            Map<String, UpsertOutcome> written = new HashMap<>();
+            for (Map.Entry<String, UpsertOutcome> outcome : conn.createQuery(sql)
+                    .addParameter("names", names)
+                    .addParameter("titles", conn.getJdbcConnection().createArrayOf("varchar", titles.toArray()))
+                    .executeAndFetch(OUTCOME_MAPPER)) {
+                written.put(outcome.getKey(), outcome.getValue());
+            }
+
+            List<UpsertOutcome> outcomes = new ArrayList<>(courses.size());
+            for (Course course : courses) {
+                outcomes.add(written.getOrDefault(course.getOfferingName(), UpsertOutcome.UNCHANGED));
+            }
+            return outcomes;
+        } catch (Sql2oException | SQLException ex) {
+            throw new DaoException("Unable to write the courses", ex);
+        }
+    }
+
     @Override
     public Course read(String offeringName) throws DaoException {
         try (Connection conn = sql2o.open()) {
-            return conn.createQuery("SELECT * FROM courses WHERE offeringName = :name;")
+            return conn.createQuery("SELECT " + COLUMNS + " FROM courses WHERE offeringName = :name;")
                     .addParameter("name", offeringName)
-                    .executeAndFetchFirst(Course.class);
+                    .executeAndFetchFirst(COURSE_MAPPER);
         } catch (Sql2oException ex) {
             throw new DaoException("Unable to read a course with offeringName " + offeringName, ex);
         }
     }
 
+    @Override
+    public List<Course> readMany(Collection<String> offeringNames) throws DaoException {
+        Set<String> names = new LinkedHashSet<>(offeringNames);
+        names.remove(null);
+        if (names.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try (Connection conn = sql2o.open()) {
+            Array array = conn.getJdbcConnection().createArrayOf("varchar", names.toArray());
+            Map<String, Course> found = new HashMap<>();
+            for (Course course : conn.createQuery("SELECT " + COLUMNS + " FROM courses WHERE offeringName = ANY(:names);")
+                    .addParameter("names", array)
+                    .executeAndFetch(COURSE_MAPPER)) {
+                found.put(course.getOfferingName(), course);
+            }
+            List<Course> courses = new ArrayList<>(found.size());
+            for (String name : names) {
+                Course course = found.get(name);
+                if (course != null) {
+                    courses.add(course);
+                }
+            }
+            return courses;
+        } catch (Sql2oException | SQLException ex) {
+            throw new DaoException("Unable to read the courses", ex);
+        }
+    }
+
     @Override
     public List<Course> readAll() throws DaoException {
         try (Connection conn = sql2o.open()) {
-            return conn.createQuery("SELECT * FROM courses;").executeAndFetch(Course.class);
+            return conn.createQuery("SELECT " + COLUMNS + " FROM courses;").executeAndFetch(COURSE_MAPPER);
         } catch (Sql2oException ex) {
             throw new DaoException("Unable to read courses from the database", ex);
         }
     }
 
+    @Override
+    public void streamAll(Consumer<? super Course> action) throws DaoException {
+        // The PostgreSQL driver only fetches fetchSize rows at a time (rather than all of them) inside a transaction.
+        try (Connection conn = sql2o.beginTransaction()) {
+            try (PreparedStatement statement = conn.getJdbcConnection().prepareStatement("SELECT " + COLUMNS + " FROM courses;")) {
+                statement.setFetchSize(fetchSize);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        action.accept(toCourse(rs));
+                    }
+                }
+            }
+            conn.commit();
+        } catch (Sql2oException | SQLException ex) {
+            throw new DaoException("Unable to read courses from the database", ex);
+        }
+    }
+
     @Override
     public List<Course> readAll(String titleQuery) throws DaoException {
-        titleQuery = titleQuery.toUpperCase();
-        List<Course> courses = readAll();
-        List<Course> toReturn = new ArrayList<>();
-        for (Course c : courses) {
-            if (c.getTitle().toUpperCase().contains(titleQuery)) {
-                toReturn.add(c);
+        TitleQuery query = TitleQuery.parse(titleQuery);
+        String sql = "SELECT " + COLUMNS + " FROM courses WHERE TRUE" + titleConditions(query) + ";";
+        try (Connection conn = sql2o.open()) {
+            return addTitleParameters(conn.createQuery(sql), query).executeAndFetch(COURSE_MAPPER);
+        } catch (Sql2oException ex) {
+            throw new DaoException("Unable to search courses by title", ex);
+        }
+    }
+
+    @Override
+    public List<Course> readPage(String after, int limit) throws DaoException {
+        return readPage(null, after, limit);
+    }
+
+    @Override
+    public List<Course> readPage(String titleQuery, String after, int limit) throws DaoException {
+        TitleQuery query = titleQuery == null ? null : TitleQuery.parse(titleQuery);
+        String sql = "SELECT " + COLUMNS + " FROM courses WHERE TRUE"
+                + (query != null ? titleConditions(query) : "")
+                + (after != null ? " AND offeringName > :after" : "")
+                + " ORDER BY offeringName LIMIT :limit;";
+        try (Connection conn = sql2o.open()) {
+            Query select = conn.createQuery(sql).addParameter("limit", limit);
+            if (query != null) {
+                addTitleParameters(select, query);
             }
+            if (after != null) {
+                select.addParameter("after", after);
+            }
+            return select.executeAndFetch(COURSE_MAPPER);
+        } catch (Sql2oException ex) {
+            throw new DaoException("Unable to read a page of courses from the database", ex);
+        }
+    }
+
+    @Override
+    public CourseChanges readChanges(long since) throws DaoException {
+        // Versions are transaction ids, and transactions may commit out of order. Only the changes made by the
+        // transactions older than the oldest one still running are read: they are all visible to the next query, and
+        // no change with a lower version can be committed after it. A replica that lags behind returns none.
+        String sql = "SELECT offeringName, title, version, updated_at FROM courses "
+                + "WHERE version > :since AND version < :horizon "
+                + "UNION ALL "
+                + "SELECT t.offeringName, NULL, t.version, t.deleted_at FROM course_tombstones t "
+                + "WHERE t.version > :since AND t.version < :horizon "
+                + "AND NOT EXISTS (SELECT 1 FROM courses c WHERE c.offeringName = t.offeringName) "
+                + "ORDER BY version, offeringName;";
+        try (Connection conn = sql2o.open()) {
+            long horizon = conn.createQuery("SELECT txid_snapshot_xmin(txid_current_snapshot());")
+                    .executeScalar(Long.class);
+            List<CourseChange> changes = conn.createQuery(sql)
+                    .addParameter("since", since)
+                    .addParameter("horizon", horizon)
+                    .executeAndFetch(CHANGE_MAPPER);
+            return new CourseChanges(changes, Math.max(since, horizon - 1));
+        } catch (Sql2oException ex) {
+            throw new DaoException("Unable to read the changes to the courses", ex);
         }
-        System.out.println(courses.toString());
-        System.out.println(toReturn.toString());
-        return toReturn;
     }
 
     @Override
     public Course update(String offeringName, String title) throws DaoException {
         String sql = "WITH updated AS ("
-                + "UPDATE courses SET title = :title WHERE offeringName = :name RETURNING *"
-                + ") SELECT * FROM updated;";
+                + "UPDATE courses SET title = :title, version = DEFAULT, updated_at = DEFAULT "
+                + "WHERE offeringName = :name RETURNING " + COLUMNS
+                + ") SELECT " + COLUMNS + " FROM updated;";
         try (Connection conn = sql2o.open()) {
             return conn.createQuery(sql)
                     .addParameter("title", title)
                     .addParameter("name", offeringName)
-                    .executeAndFetchFirst(Course.class);
+                    .executeAndFetchFirst(COURSE_MAPPER);
         } catch (Sql2oException ex) {
             throw new DaoException("Unable to update the course", ex);
         }
@@ -92,14 +286,46 @@ public class Sql2oCourseDao implements CourseDao {
     @Override
     public Course delete(String offeringName) throws DaoException {
         String sql = "WITH deleted AS ("
-                + "DELETE FROM courses WHERE offeringName = :name RETURNING *"
-                + ") SELECT * FROM deleted;";
+                + "DELETE FROM courses WHERE offeringName = :name RETURNING " + COLUMNS
+                + "), tombstone AS (" + String.format(TOMBSTONE_SQL, "deleted")
+                + ") SELECT " + COLUMNS + " FROM deleted;";
         try (Connection conn = sql2o.open()) {
             return conn.createQuery(sql)
                     .addParameter("name", offeringName)
-                    .executeAndFetchFirst(Course.class);
+                    .executeAndFetchFirst(COURSE_MAPPER);
         } catch (Sql2oException ex) {
             throw new DaoException("Unable to delete the course", ex);
         }
     }
+
+    // Map a row of COLUMNS to a course.
+    private static Course toCourse(ResultSet rs) throws SQLException {
+        return new Course(rs.getString(1), rs.getString(2));
+    }
+
+    // Get the conditions on the title for a query: one ILIKE per term (each served by the trigram index), or one
+    // for the whole query if it has no terms.
+    private static String titleConditions(TitleQuery query) {
+        StringBuilder conditions = new StringBuilder();
+        for (int i = 0; i < Math.max(1, query.getTerms().size()); i++) {
+            conditions.append(" AND title ILIKE :pattern").append(i);
+        }
+        return conditions.toString();
+    }
+
+    // Bind the patterns of titleConditions.
+    private static Query addTitleParameters(Query select, TitleQuery query) {
+        List<String> terms = query.getTerms().isEmpty() ? List.of(query.getText()) : query.getTerms();
+        for (int i = 0; i < terms.size(); i++) {
+            select.addParameter("pattern" + i, "%" + escapeLikePattern(terms.get(i)) + "%");
+        }
+        return select;
+    }
+
+    // Escape the LIKE wildcards so the query string is matched literally.
+    private static String escapeLikePattern(String query) {
+        return query.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
 }
@@ -0,0 +1,210 @@
+package dao;
+
+import exceptions.DaoException;
+import metrics.LatencyHistogram;
+import metrics.PrometheusWriter;
+import model.Course;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A dao.CourseDao that measures how long each call to another dao.CourseDao takes, failed calls included.
+ * <p>
+ * When the calls to more than one dao.CourseDao are measured, e.g. to the replica router and to the primary database
+ * behind it, each gets a target, which labels its metrics.
+ * </p>
+ */
+public class TimedCourseDao implements CourseDao {
+
+    private final CourseDao delegate;
+    private final String target;
+    private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>(); // method -> latencies
+    private final LatencyHistogram createLatencies = latencies("create");
+    private final LatencyHistogram upsertAllLatencies = latencies("upsertAll");
+    private final LatencyHistogram readLatencies = latencies("read");
+    private final LatencyHistogram readManyLatencies = latencies("readMany");
+    private final LatencyHistogram readAllLatencies = latencies("readAll");
+    private final LatencyHistogram streamAllLatencies = latencies("streamAll");
+    private final LatencyHistogram readAllByTitleLatencies = latencies("readAllByTitle");
+    private final LatencyHistogram readPageLatencies = latencies("readPage");
+    private final LatencyHistogram readPageByTitleLatencies = latencies("readPageByTitle");
+    private final LatencyHistogram readChangesLatencies = latencies("readChanges");
+    private final LatencyHistogram updateLatencies = latencies("update");
+    private final LatencyHistogram deleteLatencies = latencies("delete");
+
+    /**
+     * Construct dao.TimedCourseDao.
+     *
+     * @param delegate The dao.CourseDao to read from and write to.
+     */
+    public TimedCourseDao(CourseDao delegate) {
+        this(delegate, null);
+    }
+
+    /**
+     * Construct dao.TimedCourseDao whose metrics are labelled with a target.
+     *
+     * @param delegate The dao.CourseDao to read from and write to.
+     * @param target What delegate calls, e.g. "primary"; null for no label.
+     */
+    public TimedCourseDao(CourseDao delegate, String target) {
+        this.delegate = delegate;
+        this.target = target;
+    }
+
+    @Override
+    public Course create(String offeringName, String title) throws DaoException {
+        long start = System.nanoTime();
+        try {
+            return delegate.create(offeringName, title);
+        } finally {
+            createLatencies.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<UpsertOutcome> upsertAll(List<Course> courses) throws DaoException {
+        long start = System.nanoTime();
+        try {
+            return delegate.upsertAll(courses);
+        } finally {
+            upsertAllLatencies.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Course read(String offeringName) throws DaoException {
+        long start = System.nanoTime();
+        try {
+            return delegate.read(offeringName);
+        } finally {
+            readLatencies.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Course> readMany(Collection<String> offeringNames) throws DaoException {
+        long start = System.nanoTime();
+        try {
+            return delegate.readMany(offeringNames);
+        } finally {
+            readManyLatencies.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Course> readAll() throws DaoException {
+        long start = System.nanoTime();
+        try {
+            return delegate.readAll();
+        } finally {
+            readAllLatencies.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void streamAll(Consumer<? super Course> action) throws DaoException {
+        long start = System.nanoTime();
+        try {
+            delegate.streamAll(action);
+        } finally {
+            streamAllLatencies.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Course> readAll(String titleQuery) throws DaoException {
+        long start = System.nanoTime();
+        try {
+            return delegate.readAll(titleQuery);
+        } finally {
+            readAllByTitleLatencies.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Course> readPage(String after, int limit) throws DaoException {
+        long start = System.nanoTime();
+        try {
+            return delegate.readPage(after, limit);
+        } finally {
+            readPageLatencies.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Course> readPage(String titleQuery, String after, int limit) throws DaoException {
+        long start = System.nanoTime();
+        try {
+            return delegate.readPage(titleQuery, after, limit);
+        } finally {
+            readPageByTitleLatencies.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public CourseChanges readChanges(long since) throws DaoException {
+        long start = System.nanoTime();
+        try {
+            return delegate.readChanges(since);
+        } finally {
+            readChangesLatencies.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Course update(String offeringName, String title) throws DaoException {
+        long start = System.nanoTime();
+        try {
+            return delegate.update(offeringName, title);
+        } finally {
+            updateLatencies.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Course delete(String offeringName) throws DaoException {
+        long start = System.nanoTime();
+        try {
+            return delegate.delete(offeringName);
+        } finally {
+            deleteLatencies.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Write the latencies of the calls of several dao.TimedCourseDao, by target and method.
+     *
+     * @param writer The writer.
+     * @param timedCourseDaos The dao.TimedCourseDao to write the latencies of.
+     */
+    public static void writeTo(PrometheusWriter writer, Collection<TimedCourseDao> timedCourseDaos) {
+        writer.family("course_dao_duration_seconds", "histogram", "Time spent in course dao calls, by method.");
+        for (TimedCourseDao timedCourseDao : timedCourseDaos) {
+            timedCourseDao.latencies.forEach((method, histogram) -> writer.histogram("course_dao_duration_seconds",
+                    timedCourseDao.target == null ? PrometheusWriter.labels("method", method)
+                            : PrometheusWriter.labels("target", timedCourseDao.target, "method", method),
+                    histogram));
+        }
+    }
+
+    /**
+     * Write the latencies of the calls, by method.
+     *
+     * @param writer The writer.
+     */
+    public void writeTo(PrometheusWriter writer) {
+        writeTo(writer, Collections.singletonList(this));
+    }
+
+    private LatencyHistogram latencies(String method) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        latencies.put(method, histogram);
+        return histogram;
+    }
+}
@@ -0,0 +1,91 @@
+package dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * A title search query, which matches the same titles whichever dao.CourseDao or search.TitleSearch serves it.
+ * <p>
+ * The query is split into case-folded terms, i.e. runs of letters and digits, and a title matches it if it contains
+ * every term, ignoring case; e.g. "learning machine" matches "Machine Learning: Data to Models". A query without any
+ * letter or digit, e.g. "-" or "", has no terms and matches the titles that contain it as a whole.
+ * </p>
+ */
+public final class TitleQuery {
+
+    private static final Pattern NON_TOKEN = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final String text;
+    private final List<String> terms;
+
+    private TitleQuery(String text) {
+        this.text = text.toLowerCase(Locale.ROOT);
+        this.terms = Collections.unmodifiableList(tokenize(text));
+    }
+
+    /**
+     * Parse a title search query.
+     *
+     * @param query The query, as given by the client.
+     * @return the query.
+     */
+    public static TitleQuery parse(String query) {
+        return new TitleQuery(query);
+    }
+
+    /**
+     * Split a text into case-folded tokens, i.e. runs of letters and digits.
+     *
+     * @param text The text to split.
+     * @return the distinct tokens of text, in order of first appearance.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_TOKEN.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty() && !tokens.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Get the terms a title must all contain.
+     *
+     * @return the distinct case-folded terms of the query; empty if it is matched as a whole.
+     */
+    public List<String> getTerms() {
+        return terms;
+    }
+
+    /**
+     * Get the case-folded query, which a title must contain when the query has no terms.
+     *
+     * @return the case-folded query.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Check whether a title matches the query.
+     *
+     * @param title The course title.
+     * @return true if the title contains every term of the query, or the whole query if it has no terms.
+     */
+    public boolean matches(String title) {
+        String lowerCaseTitle = title.toLowerCase(Locale.ROOT);
+        if (terms.isEmpty()) {
+            return lowerCaseTitle.contains(text);
+        }
+        for (String term : terms) {
+            if (!lowerCaseTitle.contains(term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
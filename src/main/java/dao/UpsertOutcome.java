@@ -0,0 +1,27 @@
+package dao;
+
+import model.Course;
+
+/**
+ * What happened to a course written by dao.CourseDao#upsertAll.
+ * <p>
+ * A course listed more than once in the same call is written once, with its last title, and each of its listings
+ * gets the outcome of that write.
+ * </p>
+ */
+public enum UpsertOutcome {
+    /** The course did not exist and was created. */
+    CREATED,
+    /** The course already existed and its title was updated. */
+    UPDATED,
+    /** The course already existed with the same title, so it was left as it was. */
+    UNCHANGED;
+
+    // Get the outcome of writing a course, given the course with the same offeringName before the write, or null.
+    static UpsertOutcome of(Course existing, Course written) {
+        if (existing == null) {
+            return CREATED;
+        }
+        return existing.getTitle().equals(written.getTitle()) ? UNCHANGED : UPDATED;
+    }
+}
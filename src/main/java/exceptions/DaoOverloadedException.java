@@ -0,0 +1,17 @@
+package exceptions;
+
+/**
+ * An exception for CRUD operations rejected because the dao already has as much work queued as it accepts.
+ */
+public class DaoOverloadedException extends DaoException {
+
+    /**
+     * Constructs a new exceptions.DaoOverloadedException.
+     *
+     * @param message the detail message (which is saved for later retrieval by the getMessage() method).
+     * @param cause the cause (which is saved for later retrieval by the getCause() method).
+     */
+    public DaoOverloadedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,50 @@
+package metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+
+/**
+ * A utility class to write the garbage collection, memory and thread statistics of the JVM.
+ */
+public final class JvmMetrics {
+
+    private JvmMetrics() {
+        // This class should not be instantiated.
+    }
+
+    /**
+     * Write the JVM metrics.
+     *
+     * @param writer The writer.
+     */
+    public static void writeTo(PrometheusWriter writer) {
+        writer.family("jvm_gc_collections_total", "counter", "Garbage collections, by collector.");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            writer.sample("jvm_gc_collections_total", PrometheusWriter.labels("gc", gc.getName()),
+                    Math.max(0, gc.getCollectionCount()));
+        }
+        writer.family("jvm_gc_collection_seconds_total", "counter", "Time spent in garbage collections, by collector.");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            writer.sample("jvm_gc_collection_seconds_total", PrometheusWriter.labels("gc", gc.getName()),
+                    Math.max(0, gc.getCollectionTime()) / 1000.0);
+        }
+
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+        String heapLabels = PrometheusWriter.labels("area", "heap");
+        String nonHeapLabels = PrometheusWriter.labels("area", "nonheap");
+        writer.family("jvm_memory_bytes_used", "gauge", "Memory used, by area.");
+        writer.sample("jvm_memory_bytes_used", heapLabels, heap.getUsed());
+        writer.sample("jvm_memory_bytes_used", nonHeapLabels, nonHeap.getUsed());
+        writer.family("jvm_memory_bytes_committed", "gauge", "Memory committed, by area.");
+        writer.sample("jvm_memory_bytes_committed", heapLabels, heap.getCommitted());
+        writer.sample("jvm_memory_bytes_committed", nonHeapLabels, nonHeap.getCommitted());
+        writer.family("jvm_memory_bytes_max", "gauge", "Maximum memory, by area; -1 if undefined.");
+        writer.sample("jvm_memory_bytes_max", heapLabels, heap.getMax());
+        writer.sample("jvm_memory_bytes_max", nonHeapLabels, nonHeap.getMax());
+
+        writer.family("jvm_threads_live", "gauge", "Live threads.");
+        writer.sample("jvm_threads_live", "", ManagementFactory.getThreadMXBean().getThreadCount());
+    }
+}
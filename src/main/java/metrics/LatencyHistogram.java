@@ -0,0 +1,61 @@
+package metrics;
+
+import org.HdrHistogram.AtomicHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A histogram of latencies that can be recorded from any thread without locking or allocating.
+ * <p>
+ * Latencies are recorded in microseconds, with 2 significant digits, into an HdrHistogram with a fixed range (up
+ * to 10 minutes; longer latencies are recorded as 10 minutes). Their exact sum is kept on the side, as Prometheus
+ * expects.
+ * </p>
+ */
+public class LatencyHistogram {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final AtomicHistogram histogram = new AtomicHistogram(HIGHEST_TRACKABLE_MICROS, 2);
+    private final AtomicLong sumMicros = new AtomicLong();
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos The latency, in nanoseconds, e.g. the difference of two calls to System#nanoTime().
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS));
+        histogram.recordValue(micros);
+        sumMicros.addAndGet(micros);
+    }
+
+    /**
+     * Get the number of latencies recorded.
+     *
+     * @return the number of latencies recorded.
+     */
+    public long getCount() {
+        return histogram.getTotalCount();
+    }
+
+    /**
+     * Get the number of latencies recorded that are at most a bound.
+     *
+     * @param seconds The bound, in seconds.
+     * @return the number of latencies recorded that are at most seconds.
+     */
+    public long getCountAtMost(double seconds) {
+        return histogram.getCountBetweenValues(0, Math.min((long) (seconds * 1e6), HIGHEST_TRACKABLE_MICROS));
+    }
+
+    /**
+     * Get the sum of the latencies recorded.
+     *
+     * @return the sum of the latencies recorded, in seconds.
+     */
+    public double getSumSeconds() {
+        return sumMicros.get() / 1e6;
+    }
+}
@@ -0,0 +1,110 @@
+package metrics;
+
+/**
+ * Writes metrics in the Prometheus text exposition format (version 0.0.4).
+ */
+public class PrometheusWriter {
+
+    /**
+     * The content type of the text written.
+     */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] BUCKETS = {
+        0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10,
+    };
+
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * Build the labels of a sample.
+     *
+     * @param namesAndValues The name of each label followed by its value.
+     * @return the labels, e.g. method="GET",route="/api/courses", to pass to the other methods.
+     */
+    public static String labels(String... namesAndValues) {
+        StringBuilder labels = new StringBuilder();
+        for (int i = 0; i + 1 < namesAndValues.length; i += 2) {
+            if (labels.length() > 0) {
+                labels.append(',');
+            }
+            labels.append(namesAndValues[i]).append("=\"");
+            String value = namesAndValues[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '\\' || c == '"') {
+                    labels.append('\\').append(c);
+                } else if (c == '\n') {
+                    labels.append("\\n");
+                } else {
+                    labels.append(c);
+                }
+            }
+            labels.append('"');
+        }
+        return labels.toString();
+    }
+
+    /**
+     * Write the help and type of a metric; write its samples next.
+     *
+     * @param name The name of the metric, e.g. http_requests_total.
+     * @param type counter, gauge or histogram.
+     * @param help What the metric measures.
+     * @return this writer.
+     */
+    public PrometheusWriter family(String name, String type, String help) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        return this;
+    }
+
+    /**
+     * Write a sample.
+     *
+     * @param name The name of the sample.
+     * @param labels The labels of the sample, from #labels(String...), or "".
+     * @param value The value of the sample.
+     * @return this writer.
+     */
+    public PrometheusWriter sample(String name, String labels, double value) {
+        text.append(name);
+        if (!labels.isEmpty()) {
+            text.append('{').append(labels).append('}');
+        }
+        text.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            text.append((long) value);
+        } else {
+            text.append(value);
+        }
+        text.append('\n');
+        return this;
+    }
+
+    /**
+     * Write the samples of a histogram: its cumulative buckets, sum and count.
+     *
+     * @param name The name of the histogram, declared with #family(String, String, String).
+     * @param labels The labels of the histogram, from #labels(String...), or "".
+     * @param histogram The latencies.
+     * @return this writer.
+     */
+    public PrometheusWriter histogram(String name, String labels, LatencyHistogram histogram) {
+        String prefix = labels.isEmpty() ? "" : labels + ',';
+        long count = histogram.getCount();
+        for (double bucket : BUCKETS) {
+            // Latencies recorded while writing must not make a bucket hold more than the total.
+            long atMost = Math.min(histogram.getCountAtMost(bucket), count);
+            sample(name + "_bucket", prefix + "le=\"" + bucket + '"', atMost);
+        }
+        sample(name + "_bucket", prefix + "le=\"+Inf\"", count);
+        sample(name + "_sum", labels, histogram.getSumSeconds());
+        return sample(name + "_count", labels, count);
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+}
@@ -0,0 +1,99 @@
+package metrics;
+
+import exceptions.ApiError;
+import spark.Route;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Measures the requests handled by Spark routes: their latency and status code by route, and how many are in
+ * flight.
+ * <p>
+ * The statistics of a route are created by its first request; later requests only look them up and update
+ * counters, without allocating.
+ * </p>
+ */
+public class RequestMetrics {
+
+    private static final int MAX_STATUS = 600;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<String, Map<String, RouteStats>> routes = new ConcurrentHashMap<>(); // method -> path -> stats
+
+    /**
+     * Wrap a route so its requests are measured.
+     *
+     * @param route The route.
+     * @return a route that handles requests with route and measures them.
+     */
+    public Route timed(Route route) {
+        return (req, res) -> {
+            long start = System.nanoTime();
+            inFlight.incrementAndGet();
+            int status = 500;
+            try {
+                Object body = route.handle(req, res);
+                status = res.status();
+                return body;
+            } catch (ApiError ex) {
+                status = ex.getStatus();
+                throw ex;
+            } finally {
+                inFlight.decrementAndGet();
+                stats(req.requestMethod(), req.matchedPath()).record(status, System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * Write the request metrics.
+     *
+     * @param writer The writer.
+     */
+    public void writeTo(PrometheusWriter writer) {
+        writer.family("http_requests_in_flight", "gauge", "Requests being handled.");
+        writer.sample("http_requests_in_flight", "", inFlight.get());
+        writer.family("http_requests_total", "counter", "Requests handled, by route and status code.");
+        routes.forEach((method, paths) -> paths.forEach((path, stats) -> {
+            for (int status = 0; status < MAX_STATUS; status++) {
+                long count = stats.statuses.get(status);
+                if (count > 0) {
+                    writer.sample("http_requests_total", PrometheusWriter.labels(
+                            "method", method, "route", path, "status", Integer.toString(status)), count);
+                }
+            }
+        }));
+        writer.family("http_request_duration_seconds", "histogram", "Time spent handling requests, by route.");
+        routes.forEach((method, paths) -> paths.forEach((path, stats) -> writer.histogram(
+                "http_request_duration_seconds", PrometheusWriter.labels("method", method, "route", path),
+                stats.latencies)));
+    }
+
+    private RouteStats stats(String method, String path) {
+        Map<String, RouteStats> paths = routes.get(method);
+        if (paths == null) {
+            paths = routes.computeIfAbsent(method, m -> new ConcurrentHashMap<>());
+        }
+        RouteStats stats = paths.get(path);
+        if (stats == null) {
+            stats = paths.computeIfAbsent(path, p -> new RouteStats());
+        }
+        return stats;
+    }
+
+    // The latencies and status codes of the requests of a route.
+    private static final class RouteStats {
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final AtomicLongArray statuses = new AtomicLongArray(MAX_STATUS);
+
+        private void record(int status, long nanos) {
+            latencies.record(nanos);
+            if (status >= 0 && status < MAX_STATUS) {
+                statuses.incrementAndGet(status);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package model;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.util.Objects;
+
+/**
+ * Represent a change to a model.Course: its latest state, or the fact that it was deleted.
+ */
+public class CourseChange {
+
+    @SerializedName(value = "Offering Name")
+    private final String offeringName;
+
+    @SerializedName(value = "Title")
+    private final String title;
+
+    @SerializedName(value = "Deleted")
+    private final boolean deleted;
+
+    @SerializedName(value = "Version")
+    private final long version;
+
+    @SerializedName(value = "Updated At")
+    private final String updatedAt;
+
+    /**
+     * Construct a model.CourseChange.
+     *
+     * @param offeringName The course alphanumeric code.
+     * @param title The course Title; null if the course was deleted.
+     * @param version The version of the write that made the change.
+     * @param updatedAt When the change was made, in ISO-8601 format.
+     */
+    public CourseChange(String offeringName, String title, long version, String updatedAt) {
+        this.offeringName = offeringName;
+        this.title = title;
+        this.deleted = title == null;
+        this.version = version;
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * Get the course alphanumeric code.
+     *
+     * @return the course alphanumeric code.
+     */
+    public String getOfferingName() {
+        return offeringName;
+    }
+
+    /**
+     * Get the title of the course after the change.
+     *
+     * @return title of the course, or null if the course was deleted.
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Tell whether the course was deleted.
+     *
+     * @return true if the course was deleted.
+     */
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    /**
+     * Get the version of the write that made the change; versions grow with every write.
+     *
+     * @return the version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get when the change was made.
+     *
+     * @return the time of the change, in ISO-8601 format.
+     */
+    public String getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /**
+     * Get the course after the change.
+     *
+     * @return the course, or null if the course was deleted.
+     */
+    public Course toCourse() {
+        return deleted ? null : new Course(offeringName, title);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(offeringName, title, version);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CourseChange change = (CourseChange) o;
+        return version == change.version && offeringName.equals(change.offeringName)
+                && Objects.equals(title, change.title);
+    }
+
+    @Override
+    public String toString() {
+        return offeringName + (deleted ? " deleted" : " " + title) + " @" + version;
+    }
+}
@@ -0,0 +1,265 @@
+package search;
+
+import dao.CourseChangeListener;
+import dao.CourseDao;
+import exceptions.DaoException;
+import model.Course;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Completes prefixes typed by users into courses, e.g. "data st" or "EN.601" into EN.601.226 "DATA STRUCTURES".
+ * <p>
+ * Each course is reachable from its case-folded title, from every word of its title onwards ("structures") and
+ * from every segment of its offeringName onwards ("601.226", "226"). These keys are stored in a radix trie: an edge
+ * holds a whole run of characters and a node keeps its children in arrays sorted by first character, so the trie
+ * stays small and a prefix is found with one binary search per edge. Completions are listed in key order, and the
+ * walk stops as soon as enough courses are found.
+ * </p>
+ * <p>
+ * The trie is kept up to date by registering it as a listener of the dao.ObservableCourseDao it was built from.
+ * </p>
+ */
+public class CourseSuggester implements CourseChangeListener {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Course> courses = new HashMap<>();
+    private final Node root = new Node("");
+
+    /**
+     * Build a search.CourseSuggester for all the courses of a dao.CourseDao.
+     *
+     * @param courseDao The dao.CourseDao to read the courses from.
+     * @return the search.CourseSuggester.
+     * @throws DaoException A generic exception for CRUD operations.
+     */
+    public static CourseSuggester build(CourseDao courseDao) throws DaoException {
+        CourseSuggester suggester = new CourseSuggester();
+        courseDao.streamAll(course -> suggester.courseChanged(course.getOfferingName(), course));
+        return suggester;
+    }
+
+    @Override
+    public void courseChanged(String offeringName, Course course) {
+        lock.writeLock().lock();
+        try {
+            Course previous = courses.remove(offeringName);
+            if (previous != null) {
+                for (String key : keys(previous)) {
+                    remove(key, offeringName);
+                }
+            }
+            if (course != null) {
+                courses.put(offeringName, course);
+                for (String key : keys(course)) {
+                    insert(key, offeringName);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the courses a prefix can be completed into.
+     *
+     * @param prefix What the user typed so far; case is ignored.
+     * @param limit The maximum number of courses to return.
+     * @return At most limit courses, in the order of their completions.
+     */
+    public List<Course> suggest(String prefix, int limit) {
+        String key = prefix.toLowerCase(Locale.ROOT);
+        List<Course> found = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int i = 0;
+            while (i < key.length()) {
+                int index = Arrays.binarySearch(node.firsts, key.charAt(i));
+                if (index < 0) {
+                    return found;
+                }
+                node = node.children[index];
+                int common = commonPrefixLength(node.label, key, i);
+                if (common < node.label.length() && i + common < key.length()) {
+                    return found; // The prefix leaves the trie in the middle of this edge.
+                }
+                i += common;
+            }
+            Set<String> offeringNames = new LinkedHashSet<>();
+            collect(node, limit, offeringNames);
+            for (String offeringName : offeringNames) {
+                found.add(courses.get(offeringName));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return found;
+    }
+
+    // Add the offeringNames of the keys below node to found, in key order, until it holds limit of them.
+    private static void collect(Node node, int limit, Set<String> found) {
+        for (String offeringName : node.values) {
+            if (found.size() == limit) {
+                return;
+            }
+            found.add(offeringName);
+        }
+        for (Node child : node.children) {
+            if (found.size() == limit) {
+                return;
+            }
+            collect(child, limit, found);
+        }
+    }
+
+    private void insert(String key, String offeringName) {
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            int index = Arrays.binarySearch(node.firsts, key.charAt(i));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(i));
+                leaf.values = new String[] {offeringName};
+                node.addChild(-index - 1, leaf);
+                return;
+            }
+            Node child = node.children[index];
+            int common = commonPrefixLength(child.label, key, i);
+            if (common < child.label.length()) {
+                // Split the edge where the key leaves it.
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.firsts = new char[] {child.label.charAt(0)};
+                middle.children = new Node[] {child};
+                node.children[index] = middle;
+                child = middle;
+            }
+            node = child;
+            i += common;
+        }
+        node.values = Arrays.copyOf(node.values, node.values.length + 1);
+        node.values[node.values.length - 1] = offeringName;
+    }
+
+    private void remove(String key, String offeringName) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            path.add(node);
+            int index = Arrays.binarySearch(node.firsts, key.charAt(i));
+            if (index < 0) {
+                return;
+            }
+            node = node.children[index];
+            if (!key.startsWith(node.label, i)) {
+                return;
+            }
+            i += node.label.length();
+        }
+        int position = Arrays.asList(node.values).indexOf(offeringName);
+        if (position < 0) {
+            return;
+        }
+        String[] values = new String[node.values.length - 1];
+        System.arraycopy(node.values, 0, values, 0, position);
+        System.arraycopy(node.values, position + 1, values, position, values.length - position);
+        node.values = values;
+        // Drop the nodes left without keys, and merge a node left with a single child into it.
+        for (int depth = path.size() - 1; depth >= 0; depth--) {
+            if (node.values.length > 0 || node.children.length > 1) {
+                return;
+            }
+            Node parent = path.get(depth);
+            int index = Arrays.binarySearch(parent.firsts, node.label.charAt(0));
+            if (node.children.length == 1) {
+                Node child = node.children[0];
+                child.label = node.label + child.label;
+                parent.children[index] = child;
+                return;
+            }
+            parent.removeChild(index);
+            node = parent;
+        }
+    }
+
+    // Get the keys a course can be found by: its title and offeringName, and every word or segment onwards.
+    private static Set<String> keys(Course course) {
+        Set<String> keys = new LinkedHashSet<>();
+        String title = course.getTitle().toLowerCase(Locale.ROOT);
+        for (int i = 0; i < title.length(); i++) {
+            boolean wordStart = Character.isLetterOrDigit(title.charAt(i))
+                    && (i == 0 || !Character.isLetterOrDigit(title.charAt(i - 1)));
+            if (wordStart) {
+                keys.add(title.substring(i));
+            }
+        }
+        String offeringName = course.getOfferingName().toLowerCase(Locale.ROOT);
+        keys.add(offeringName);
+        for (int i = offeringName.indexOf('.'); i >= 0; i = offeringName.indexOf('.', i + 1)) {
+            keys.add(offeringName.substring(i + 1));
+        }
+        keys.remove("");
+        return keys;
+    }
+
+    // Get the length of the common prefix of label and of key from offset on.
+    private static int commonPrefixLength(String label, String key, int offset) {
+        int length = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < length && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    // A node of the trie, along with the label of the edge leading to it.
+    private static final class Node {
+        private static final char[] NO_FIRSTS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final String[] NO_VALUES = new String[0];
+
+        private String label;
+        private char[] firsts = NO_FIRSTS; // first character of the label of each child, sorted
+        private Node[] children = NO_CHILDREN;
+        private String[] values = NO_VALUES; // offeringNames of the courses with a key ending here
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private void addChild(int index, Node child) {
+            char[] newFirsts = new char[firsts.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(firsts, 0, newFirsts, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newFirsts[index] = child.label.charAt(0);
+            newChildren[index] = child;
+            System.arraycopy(firsts, index, newFirsts, index + 1, firsts.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            firsts = newFirsts;
+            children = newChildren;
+        }
+
+        private void removeChild(int index) {
+            char[] newFirsts = new char[firsts.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(firsts, 0, newFirsts, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(firsts, index + 1, newFirsts, index, newFirsts.length - index);
+            System.arraycopy(children, index + 1, newChildren, index, newChildren.length - index);
+            firsts = newFirsts;
+            children = newChildren;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package search;
+
+import dao.CourseDao;
+import exceptions.DaoException;
+import model.Course;
+
+import java.util.List;
+
+/**
+ * A search.TitleSearch that leaves the search to a dao.CourseDao, i.e. to the database.
+ * <p>
+ * The titles match the query as described in dao.TitleQuery: each term becomes a condition of the query, which the
+ * trigram index on the titles serves.
+ * </p>
+ */
+public class DaoTitleSearch implements TitleSearch {
+
+    private final CourseDao courseDao;
+
+    /**
+     * Construct search.DaoTitleSearch.
+     *
+     * @param courseDao The dao.CourseDao to search.
+     */
+    public DaoTitleSearch(CourseDao courseDao) {
+        this.courseDao = courseDao;
+    }
+
+    @Override
+    public List<Course> search(String query, String after, int limit) throws DaoException {
+        return courseDao.readPage(query, after, limit);
+    }
+}
@@ -0,0 +1,292 @@
+package search;
+
+import dao.CourseChangeListener;
+import dao.CourseDao;
+import dao.TitleQuery;
+import exceptions.DaoException;
+import model.Course;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory index that ranks courses by how well their title and offeringName match a free-text query.
+ * <p>
+ * Each course is a document made of the tokens of its title and of its offeringName (e.g. "en", "601", "226").
+ * Documents are scored with BM25. A query term also matches the indexed terms it is a prefix of, and the ones
+ * within a small edit distance of it (one edit for terms of 4 to 6 characters, two for longer ones), so
+ * "data structres" still finds "DATA STRUCTURES"; such matches count for less than exact ones. The terms within
+ * that distance are found through the bigrams of the indexed terms rather than by comparing the query term with
+ * each of them. Only the best K documents are kept, in a bounded heap.
+ * </p>
+ * <p>
+ * The index is kept up to date by registering it as a listener of the dao.ObservableCourseDao it was built from.
+ * </p>
+ */
+public class RankedCourseSearch implements CourseChangeListener {
+
+    private static final Pattern NON_TOKEN = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double PREFIX_WEIGHT = 0.75;
+    private static final double FUZZY_WEIGHT = 0.5;
+    private static final int MIN_PREFIX_LENGTH = 3;
+
+    private static final Comparator<Result> BY_SCORE = Comparator.comparingDouble((Result r) -> r.score)
+            .thenComparing(r -> r.course.getOfferingName(), Comparator.reverseOrder());
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Course> courses = new HashMap<>();
+    private final Map<String, Integer> lengths = new HashMap<>(); // offeringName -> number of terms
+    private final TreeMap<String, Map<String, Integer>> postings = new TreeMap<>(); // term -> offeringName -> tf
+    private final Map<String, Set<String>> grams = new HashMap<>(); // bigram of a padded term -> terms
+    private long totalLength;
+
+    /**
+     * Build an index of all the courses of a dao.CourseDao.
+     *
+     * @param courseDao The dao.CourseDao to read the courses from.
+     * @return the index.
+     * @throws DaoException A generic exception for CRUD operations.
+     */
+    public static RankedCourseSearch build(CourseDao courseDao) throws DaoException {
+        RankedCourseSearch index = new RankedCourseSearch();
+        courseDao.streamAll(course -> index.courseChanged(course.getOfferingName(), course));
+        return index;
+    }
+
+    @Override
+    public void courseChanged(String offeringName, Course course) {
+        lock.writeLock().lock();
+        try {
+            Course previous = courses.remove(offeringName);
+            if (previous != null) {
+                for (String term : new HashSet<>(terms(previous))) {
+                    Map<String, Integer> frequencies = postings.get(term);
+                    frequencies.remove(offeringName);
+                    if (frequencies.isEmpty()) {
+                        postings.remove(term);
+                        for (String gram : grams(term)) {
+                            Set<String> terms = grams.get(gram);
+                            terms.remove(term);
+                            if (terms.isEmpty()) {
+                                grams.remove(gram);
+                            }
+                        }
+                    }
+                }
+                totalLength -= lengths.remove(offeringName);
+            }
+            if (course != null) {
+                courses.put(offeringName, course);
+                List<String> terms = terms(course);
+                for (String term : terms) {
+                    Map<String, Integer> frequencies = postings.get(term);
+                    if (frequencies == null) {
+                        frequencies = new HashMap<>();
+                        postings.put(term, frequencies);
+                        for (String gram : grams(term)) {
+                            grams.computeIfAbsent(gram, g -> new HashSet<>()).add(term);
+                        }
+                    }
+                    frequencies.merge(offeringName, 1, Integer::sum);
+                }
+                lengths.put(offeringName, terms.size());
+                totalLength += terms.size();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the courses that best match a query.
+     *
+     * @param query Free text, e.g. "data structures" or "601.226".
+     * @param k The maximum number of courses to return.
+     * @return At most k courses, best match first.
+     */
+    public List<Course> search(String query, int k) {
+        List<String> queryTerms = TitleQuery.tokenize(query);
+        PriorityQueue<Result> best = new PriorityQueue<>(k + 1, BY_SCORE);
+        lock.readLock().lock();
+        try {
+            if (courses.isEmpty() || k < 1) {
+                return new ArrayList<>();
+            }
+            double averageLength = (double) totalLength / courses.size();
+            Map<String, Double> scores = new HashMap<>();
+            for (String queryTerm : queryTerms) {
+                // A course scores once per query term, for the indexed term that matches it best.
+                Map<String, Double> termScores = new HashMap<>();
+                for (Map.Entry<String, Double> match : expand(queryTerm).entrySet()) {
+                    Map<String, Integer> frequencies = postings.get(match.getKey());
+                    double df = frequencies.size();
+                    double idf = Math.log(1 + (courses.size() - df + 0.5) / (df + 0.5));
+                    for (Map.Entry<String, Integer> posting : frequencies.entrySet()) {
+                        double tf = posting.getValue();
+                        double norm = K1 * (1 - B + B * lengths.get(posting.getKey()) / averageLength);
+                        double score = match.getValue() * idf * tf * (K1 + 1) / (tf + norm);
+                        termScores.merge(posting.getKey(), score, Math::max);
+                    }
+                }
+                termScores.forEach((offeringName, score) -> scores.merge(offeringName, score, Double::sum));
+            }
+            for (Map.Entry<String, Double> score : scores.entrySet()) {
+                best.add(new Result(courses.get(score.getKey()), score.getValue()));
+                if (best.size() > k) {
+                    best.poll();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Course> found = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            found.add(best.poll().course);
+        }
+        Collections.reverse(found);
+        return found;
+    }
+
+    // Get the indexed terms matching a query term along with the weight of the match.
+    private Map<String, Double> expand(String queryTerm) {
+        Map<String, Double> matches = new HashMap<>();
+        if (queryTerm.length() >= MIN_PREFIX_LENGTH) {
+            for (String term : postings.subMap(queryTerm, false, queryTerm + Character.MAX_VALUE, false).keySet()) {
+                matches.put(term, PREFIX_WEIGHT);
+            }
+        }
+        int maxDistance = queryTerm.length() < 4 ? 0 : queryTerm.length() <= 6 ? 1 : 2;
+        if (maxDistance > 0) {
+            fuzzyMatches(queryTerm, maxDistance).forEach((term, distance) ->
+                    matches.merge(term, Math.pow(FUZZY_WEIGHT, distance), Math::max));
+        }
+        if (postings.containsKey(queryTerm)) {
+            matches.put(queryTerm, 1.0);
+        }
+        return matches;
+    }
+
+    /**
+     * Find the indexed terms within a few edits of a query term, other than the query term itself. An edit changes
+     * at most two of the bigrams of a term padded with '^' and '$', so a term within maxDistance edits of the query
+     * term has all but at most 2 * maxDistance of its distinct bigrams: only the terms sharing that many bigrams
+     * with it, found through the bigram postings, are compared with it. The caller holds the read lock.
+     *
+     * @param queryTerm A case-folded query term.
+     * @param maxDistance The maximum number of edits.
+     * @return the matching terms along with their distance to queryTerm.
+     */
+    Map<String, Integer> fuzzyMatches(String queryTerm, int maxDistance) {
+        Set<String> queryGrams = grams(queryTerm);
+        int minShared = queryGrams.size() - 2 * maxDistance;
+        Collection<String> candidates;
+        if (minShared < 1) {
+            candidates = postings.keySet(); // too few distinct bigrams (e.g. "aaaaa") to rule any term out
+        } else {
+            Map<String, Integer> shared = new HashMap<>();
+            for (String gram : queryGrams) {
+                for (String term : grams.getOrDefault(gram, Collections.emptySet())) {
+                    shared.merge(term, 1, Integer::sum);
+                }
+            }
+            candidates = new ArrayList<>();
+            for (Map.Entry<String, Integer> count : shared.entrySet()) {
+                if (count.getValue() >= minShared) {
+                    candidates.add(count.getKey());
+                }
+            }
+        }
+        Map<String, Integer> matches = new HashMap<>();
+        for (String term : candidates) {
+            if (Math.abs(term.length() - queryTerm.length()) > maxDistance) {
+                continue;
+            }
+            int distance = editDistance(queryTerm, term, maxDistance);
+            if (distance > 0 && distance <= maxDistance) {
+                matches.put(term, distance);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Compute the Levenshtein distance between two strings, giving up once it exceeds a bound.
+     *
+     * @param a A string.
+     * @param b Another string.
+     * @param maxDistance The bound.
+     * @return the distance between a and b, or maxDistance + 1 if it is greater than maxDistance.
+     */
+    static int editDistance(String a, String b, int maxDistance) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], maxDistance + 1);
+    }
+
+    // Get the distinct bigrams of a term padded with '^' and '$', which terms never contain.
+    private static Set<String> grams(String term) {
+        String padded = '^' + term + '$';
+        Set<String> found = new HashSet<>();
+        for (int i = 0; i + 2 <= padded.length(); i++) {
+            found.add(padded.substring(i, i + 2));
+        }
+        return found;
+    }
+
+    // Get the terms of a course document: the tokens of its title and of its offeringName, with repetitions.
+    private static List<String> terms(Course course) {
+        List<String> terms = new ArrayList<>();
+        for (String text : new String[] {course.getTitle(), course.getOfferingName()}) {
+            for (String token : NON_TOKEN.split(text.toLowerCase(Locale.ROOT))) {
+                if (!token.isEmpty()) {
+                    terms.add(token);
+                }
+            }
+        }
+        return terms;
+    }
+
+    // A course along with its score.
+    private static final class Result {
+        private final Course course;
+        private final double score;
+
+        private Result(Course course, double score) {
+            this.course = course;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package search;
+
+import dao.CourseChangeListener;
+import dao.CourseDao;
+import dao.TitleQuery;
+import exceptions.DaoException;
+import model.Course;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory inverted index over course titles.
+ * <p>
+ * Titles are case-folded and split into tokens (runs of letters and digits) once, when a course is indexed. The
+ * index maps each token to the courses whose title contains it, and each n-gram (1 to 3 characters) of a token to
+ * the tokens that contain it, so a query term is resolved to the matching tokens without looking at every course.
+ * A title matches a query as described in dao.TitleQuery; e.g. "machine learn" matches
+ * "Machine Learning: Data to Models". A query without terms, e.g. "-", cannot be looked up and is checked against
+ * every title.
+ * </p>
+ * <p>
+ * The index is kept up to date by registering it as a listener of the dao.ObservableCourseDao it was built from.
+ * </p>
+ */
+public class TitleIndex implements TitleSearch, CourseChangeListener {
+
+    private static final int GRAM_LENGTH = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Course> courses = new HashMap<>();
+    private final Map<String, Set<String>> postings = new HashMap<>(); // token -> offeringNames
+    private final Map<String, Set<String>> grams = new HashMap<>(); // n-gram -> tokens
+
+    /**
+     * Build an index of all the courses of a dao.CourseDao.
+     *
+     * @param courseDao The dao.CourseDao to read the courses from.
+     * @return the index.
+     * @throws DaoException A generic exception for CRUD operations.
+     */
+    public static TitleIndex build(CourseDao courseDao) throws DaoException {
+        TitleIndex index = new TitleIndex();
+        courseDao.streamAll(course -> index.courseChanged(course.getOfferingName(), course));
+        return index;
+    }
+
+    @Override
+    public void courseChanged(String offeringName, Course course) {
+        lock.writeLock().lock();
+        try {
+            Course previous = courses.remove(offeringName);
+            if (previous != null) {
+                for (String token : TitleQuery.tokenize(previous.getTitle())) {
+                    removePosting(token, offeringName);
+                }
+            }
+            if (course != null) {
+                courses.put(offeringName, course);
+                for (String token : TitleQuery.tokenize(course.getTitle())) {
+                    addPosting(token, offeringName);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Course> search(String query, String after, int limit) {
+        TitleQuery titleQuery = TitleQuery.parse(query);
+        List<String> terms = titleQuery.getTerms();
+        List<Course> found = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Set<String> matches = terms.isEmpty() ? coursesMatching(titleQuery) : null;
+            for (String term : terms) {
+                Set<String> termMatches = coursesContaining(term);
+                if (matches == null) {
+                    matches = termMatches;
+                } else {
+                    matches.retainAll(termMatches);
+                }
+                if (matches.isEmpty()) {
+                    return found;
+                }
+            }
+            for (String offeringName : matches) {
+                if (after == null || offeringName.compareTo(after) > 0) {
+                    found.add(courses.get(offeringName));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        found.sort((c1, c2) -> c1.getOfferingName().compareTo(c2.getOfferingName()));
+        return found.size() > limit ? new ArrayList<>(found.subList(0, limit)) : found;
+    }
+
+    /**
+     * Get the number of courses in the index.
+     *
+     * @return the number of courses in the index.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return courses.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Get the offeringNames of the courses whose title contains a query without terms, which the index cannot look
+    // up, so every title is checked.
+    private Set<String> coursesMatching(TitleQuery query) {
+        Set<String> found = new HashSet<>();
+        for (Course course : courses.values()) {
+            if (query.matches(course.getTitle())) {
+                found.add(course.getOfferingName());
+            }
+        }
+        return found;
+    }
+
+    // Get the offeringNames of the courses with a title token containing term; the caller may modify the set.
+    private Set<String> coursesContaining(String term) {
+        Set<String> found = new HashSet<>();
+        for (String token : tokensContaining(term)) {
+            found.addAll(postings.get(token));
+        }
+        return found;
+    }
+
+    // Get the indexed tokens that contain term.
+    private Set<String> tokensContaining(String term) {
+        if (term.length() <= GRAM_LENGTH) {
+            return grams.getOrDefault(term, Collections.emptySet());
+        }
+        // Start from the rarest trigram of the term, then keep the tokens that actually contain the term.
+        Set<String> smallest = null;
+        for (int i = 0; i + GRAM_LENGTH <= term.length(); i++) {
+            Set<String> tokens = grams.getOrDefault(term.substring(i, i + GRAM_LENGTH), Collections.emptySet());
+            if (smallest == null || tokens.size() < smallest.size()) {
+                smallest = tokens;
+            }
+        }
+        Set<String> found = new HashSet<>();
+        for (String token : smallest) {
+            if (token.contains(term)) {
+                found.add(token);
+            }
+        }
+        return found;
+    }
+
+    private void addPosting(String token, String offeringName) {
+        Set<String> offeringNames = postings.get(token);
+        if (offeringNames == null) {
+            offeringNames = new HashSet<>();
+            postings.put(token, offeringNames);
+            for (String gram : grams(token)) {
+                grams.computeIfAbsent(gram, g -> new HashSet<>()).add(token);
+            }
+        }
+        offeringNames.add(offeringName);
+    }
+
+    private void removePosting(String token, String offeringName) {
+        Set<String> offeringNames = postings.get(token);
+        if (offeringNames == null || !offeringNames.remove(offeringName) || !offeringNames.isEmpty()) {
+            return;
+        }
+        // No course uses the token anymore.
+        postings.remove(token);
+        for (String gram : grams(token)) {
+            Set<String> tokens = grams.get(gram);
+            tokens.remove(token);
+            if (tokens.isEmpty()) {
+                grams.remove(gram);
+            }
+        }
+    }
+
+    // Get the distinct substrings of token of length 1 to GRAM_LENGTH.
+    private static Set<String> grams(String token) {
+        Set<String> found = new HashSet<>();
+        for (int length = 1; length <= GRAM_LENGTH; length++) {
+            for (int i = 0; i + length <= token.length(); i++) {
+                found.add(token.substring(i, i + length));
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,24 @@
+package search;
+
+import exceptions.DaoException;
+import model.Course;
+
+import java.util.List;
+
+/**
+ * Finds the courses whose title matches a search query.
+ */
+public interface TitleSearch {
+
+    /**
+     * Find the courses whose title matches a query, ordered by offeringName.
+     *
+     * @param query A search term.
+     * @param after Only courses whose offeringName sorts after this one are returned; null to start from the first
+     *     course.
+     * @param limit The maximum number of courses to return.
+     * @return At most limit courses.
+     * @throws DaoException A generic exception for CRUD operations.
+     */
+    List<Course> search(String query, String after, int limit) throws DaoException;
+}
@@ -0,0 +1,153 @@
+package util;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import dao.Sql2oCourseDao;
+import model.Course;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.sql2o.Connection;
+import org.sql2o.Sql2o;
+import org.sql2o.Sql2oException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+/**
+ * A utility class to replace the content of the courses table with the courses of a CSV or NDJSON file.
+ * <p>
+ * The file is streamed into a temporary staging table with the PostgreSQL COPY protocol and then merged into the
+ * courses table in the same transaction: courses missing from the file are deleted, new ones are inserted and only
+ * the ones whose title changed are updated. Readers see the old catalog until the transaction commits. The deleted
+ * courses leave tombstones and the version of the courses written is bumped, like writes through
+ * dao.Sql2oCourseDao, so clients syncing with GET /api/courses/changes only read what the reload changed.
+ * </p>
+ */
+public final class CourseBulkLoader {
+
+    private static final String COPY_SQL = "COPY courses_staging (offeringName, title) FROM STDIN WITH (FORMAT csv";
+
+    private CourseBulkLoader() {
+        // This class should not be instantiated.
+    }
+
+    /**
+     * Replace the courses with the ones in a file.
+     *
+     * @param sql2o a Sql2o object connected to the database to be used in this application.
+     * @param file a CSV file with an "offeringName,title" header line, or (if its name ends in .ndjson or .jsonl)
+     *     a file with one JSON course per line.
+     * @return the number of courses read from the file.
+     * @throws IOException if the file cannot be read.
+     * @throws Sql2oException if the courses cannot be written; the courses table is left unchanged.
+     */
+    public static long reload(Sql2o sql2o, Path file) throws IOException, Sql2oException {
+        String name = file.getFileName().toString();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+                return reloadFromNdjson(sql2o, reader);
+            }
+            return reloadFromCsv(sql2o, reader);
+        }
+    }
+
+    /**
+     * Replace the courses with the ones in a CSV document.
+     *
+     * @param sql2o a Sql2o object connected to the database to be used in this application.
+     * @param csv a CSV document with an "offeringName,title" header line.
+     * @return the number of courses read.
+     * @throws IOException if the document cannot be read.
+     * @throws Sql2oException if the courses cannot be written; the courses table is left unchanged.
+     */
+    public static long reloadFromCsv(Sql2o sql2o, Reader csv) throws IOException, Sql2oException {
+        return reload(sql2o, pg -> pg.getCopyAPI().copyIn(COPY_SQL + ", HEADER true);", csv));
+    }
+
+    /**
+     * Replace the courses with the ones in an NDJSON document.
+     *
+     * @param sql2o a Sql2o object connected to the database to be used in this application.
+     * @param ndjson a document with one JSON course (as returned by the API) per line.
+     * @return the number of courses read.
+     * @throws IOException if the document cannot be read or a line is not a JSON course.
+     * @throws Sql2oException if the courses cannot be written; the courses table is left unchanged.
+     */
+    public static long reloadFromNdjson(Sql2o sql2o, BufferedReader ndjson) throws IOException, Sql2oException {
+        Gson gson = new Gson();
+        return reload(sql2o, pg -> {
+            PGCopyOutputStream copy = new PGCopyOutputStream(pg, COPY_SQL + ");");
+            try {
+                Writer csv = new OutputStreamWriter(copy, StandardCharsets.UTF_8);
+                String line;
+                while ((line = ndjson.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    Course course = gson.fromJson(line, Course.class);
+                    csv.write(toCsvField(course.getOfferingName()));
+                    csv.write(',');
+                    csv.write(toCsvField(course.getTitle()));
+                    csv.write('\n');
+                }
+                csv.flush();
+                return copy.endCopy();
+            } catch (JsonParseException ex) {
+                throw new IOException("Not a JSON course: " + ex.getMessage(), ex);
+            } finally {
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            }
+        });
+    }
+
+    // Copy the courses into a staging table, then merge them into the courses table, in a single transaction.
+    private static long reload(Sql2o sql2o, Copy copy) throws IOException, Sql2oException {
+        try (Connection conn = sql2o.beginTransaction()) {
+            conn.createQuery("CREATE TEMPORARY TABLE courses_staging ON COMMIT DROP AS "
+                    + "SELECT offeringName, title FROM courses WITH NO DATA;")
+                    .executeUpdate();
+            // COPY numbers the rows in the order of the file.
+            conn.createQuery("ALTER TABLE courses_staging ADD COLUMN line BIGSERIAL;").executeUpdate();
+            long count = copy.into(conn.getJdbcConnection().unwrap(PGConnection.class));
+            conn.createQuery("ANALYZE courses_staging;").executeUpdate();
+            conn.createQuery("WITH deleted AS (DELETE FROM courses c WHERE NOT EXISTS ("
+                    + "SELECT 1 FROM courses_staging s WHERE s.offeringName = c.offeringName) RETURNING offeringName) "
+                    + String.format(Sql2oCourseDao.TOMBSTONE_SQL, "deleted") + ";")
+                    .executeUpdate();
+            // A course listed more than once in the file is written once, with its last title, as by upsertAll.
+            conn.createQuery("INSERT INTO courses(offeringName, title) "
+                    + "SELECT DISTINCT ON (offeringName) offeringName, title FROM courses_staging "
+                    + "ORDER BY offeringName, line DESC "
+                    + "ON CONFLICT (offeringName) DO UPDATE SET title = EXCLUDED.title, version = DEFAULT, "
+                    + "updated_at = DEFAULT WHERE courses.title IS DISTINCT FROM EXCLUDED.title;")
+                    .executeUpdate();
+            conn.commit();
+            return count;
+        } catch (SQLException ex) {
+            throw new Sql2oException("Unable to copy the courses into the database", ex);
+        }
+    }
+
+    // Quote a CSV field; null is written as an unquoted empty field, which COPY reads as NULL.
+    private static String toCsvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    // Stream the courses into the courses_staging table.
+    @FunctionalInterface
+    private interface Copy {
+        long into(PGConnection pg) throws SQLException, IOException;
+    }
+}
@@ -1,13 +1,28 @@
 package util;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import dao.CourseChangeSubscriber;
+import dao.Sql2oCourseDao;
+import exceptions.DaoException;
 import model.Course;
+import org.postgresql.ds.PGSimpleDataSource;
 import org.sql2o.Connection;
 import org.sql2o.Sql2o;
 import org.sql2o.Sql2oException;
 
+import javax.sql.DataSource;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static util.DataStore.sampleCourses;
 
@@ -17,6 +32,10 @@ import static util.DataStore.sampleCourses;
 public final class Database {
     public static boolean USE_TEST_DATABASE = false;
 
+    private static final int MAX_NOTIFIED_COURSES = 100; // a notification holds at most 8000 bytes
+    // The connection pool behind each Sql2o object created by getSql2o, for getPoolStats.
+    private static final Map<Sql2o, HikariDataSource> POOLS = new ConcurrentHashMap<>();
+
     private Database() {
         // This class should not be instantiated.
     }
@@ -26,18 +45,37 @@ public final class Database {
      * <p>
      * Caution: Use this to cleanup the database.
      * </p>
+     * <p>
+     * If a file is given, the courses are replaced with the ones in the file (see util.CourseBulkLoader)
+     * instead of the sample data.
+     * </p>
      *
-     * @param args command-line arguments; not used here.
+     * @param args command-line arguments; optionally the path of a CSV or NDJSON file of courses.
      * @throws URISyntaxException Checked exception thrown to indicate the provided database URL cannot be parsed as a
      *     URI reference.
+     * @throws IOException if the file of courses cannot be read.
      */
-    public static void main(String[] args) throws URISyntaxException {
+    public static void main(String[] args) throws URISyntaxException, IOException {
         Sql2o sql2o = getSql2o();
-        createCoursesTableWithSampleData(sql2o, sampleCourses());
+        if (args != null && args.length > 0) {
+            createCoursesTableWithSampleData(sql2o, List.of());
+            long count = CourseBulkLoader.reload(sql2o, Paths.get(args[0]));
+            System.out.println("Loaded " + count + " courses from " + args[0]);
+        } else {
+            createCoursesTableWithSampleData(sql2o, sampleCourses());
+        }
     }
 
     /**
      * Create and return a Sql2o object connected to the database pointed to by the DATABASE_URL.
+     * <p>
+     * Connections are drawn from a bounded pool, so each Sql2o#open() reuses an established (TLS, authenticated)
+     * connection instead of opening a new one. The pool is configured with the environment variables
+     * DB_POOL_MAX_SIZE, DB_POOL_MIN_IDLE, DB_POOL_ACQUIRE_TIMEOUT_MS, DB_POOL_IDLE_TIMEOUT_MS,
+     * DB_POOL_MAX_LIFETIME_MS and DB_POOL_VALIDATION_TIMEOUT_MS. Statements run often are kept prepared on the
+     * server by each connection (see DB_PREPARE_THRESHOLD). With DB_STATEMENT_TIMEOUT_MS, the server cancels the
+     * statements that run longer, e.g. ones whose request has already timed out (see COURSE_DAO_TIMEOUT_MS).
+     * </p>
      *
      * @return a Sql2o object connected to the database to be used in this application.
      * @throws URISyntaxException Checked exception thrown to indicate the provided database URL cannot be parsed as a
@@ -50,12 +88,70 @@ public final class Database {
             throw new URISyntaxException(databaseUrl, "DATABASE_URL is not set");
         }
 
+        return createPooledSql2o(databaseUrl, "courses-db", true);
+    }
+
+    /**
+     * Create and return a Sql2o object connected to a database, e.g. one of the read replicas listed by
+     * DATABASE_REPLICA_URLS, through a connection pool configured like the one of getSql2o(). Unlike getSql2o(),
+     * this does not fail if the database cannot be reached yet; the pool connects when it is first used.
+     *
+     * @param databaseUrl The URL of the database, in the format of DATABASE_URL.
+     * @param poolName The name of the connection pool, as it appears in the logs.
+     * @return a Sql2o object connected to the database.
+     * @throws URISyntaxException Checked exception thrown to indicate the provided database URL cannot be parsed as a
+     *     URI reference.
+     * @throws Sql2oException an generic exception thrown by Sql2o encapsulating anny issues with the Sql2o ORM.
+     */
+    public static Sql2o getSql2o(String databaseUrl, String poolName) throws URISyntaxException, Sql2oException {
+        return createPooledSql2o(databaseUrl, poolName, false);
+    }
+
+    /**
+     * Create a DataSource for the database pointed to by DATABASE_URL that opens a new connection each time, e.g.
+     * for a connection held open for as long as the application runs, which should not take a slot of the pool.
+     *
+     * @return the DataSource.
+     * @throws URISyntaxException Checked exception thrown to indicate the provided database URL cannot be parsed as a
+     *     URI reference.
+     */
+    public static DataSource getUnpooledDataSource() throws URISyntaxException {
+        String databaseUrl = System.getenv("DATABASE_URL");
+        if (databaseUrl == null) {
+            throw new URISyntaxException(databaseUrl, "DATABASE_URL is not set");
+        }
         URI dbUri = new URI(databaseUrl);
-        String username = dbUri.getUserInfo().split(":")[0];
-        String password = dbUri.getUserInfo().split(":")[1];
-        String dbUrl = getDatabaseUrl();
+        PGSimpleDataSource dataSource = new PGSimpleDataSource();
+        dataSource.setURL(getJdbcUrl(dbUri));
+        dataSource.setUser(dbUri.getUserInfo().split(":")[0]);
+        dataSource.setPassword(dbUri.getUserInfo().split(":")[1]);
+        dataSource.setTcpKeepAlive(true);
+        return dataSource;
+    }
 
-        return new Sql2o(dbUrl, username, password);
+    /**
+     * Get the statistics of the connection pool behind a Sql2o object created by getSql2o().
+     *
+     * @param sql2o a Sql2o object created by getSql2o().
+     * @return the pool statistics (active, idle, total and awaiting connections, and the configured sizes);
+     *     empty if sql2o is not backed by a connection pool.
+     */
+    public static Map<String, Integer> getPoolStats(Sql2o sql2o) {
+        Map<String, Integer> stats = new LinkedHashMap<>();
+        HikariDataSource dataSource = POOLS.get(sql2o);
+        if (dataSource == null) {
+            return stats;
+        }
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool != null) {
+            stats.put("active", pool.getActiveConnections());
+            stats.put("idle", pool.getIdleConnections());
+            stats.put("total", pool.getTotalConnections());
+            stats.put("awaiting", pool.getThreadsAwaitingConnection());
+        }
+        stats.put("minIdle", dataSource.getMinimumIdle());
+        stats.put("maxSize", dataSource.getMaximumPoolSize());
+        return stats;
     }
 
     /**
@@ -72,34 +168,132 @@ public final class Database {
                     + "title VARCHAR(50) NOT NULL"
                     + ");";
             conn.createQuery(sql).executeUpdate();
-            for (Course c : samples) {
-                add(conn, c);
-            }
-
+            createChangeTracking(conn);
+            createTitleSearchIndex(conn);
+            createChangeNotificationTriggers(conn);
         } catch (Sql2oException e) {
             e.printStackTrace();
+            return;
         }
-    }
 
-    // Get either the test or the production Database URL
-    private static String getDatabaseUrl() throws URISyntaxException {
-        String databaseUrl = System.getenv("DATABASE_URL");
-        if (databaseUrl == null) {
-            throw new URISyntaxException(databaseUrl, "DATABASE_URL is not set");
+        try {
+            new Sql2oCourseDao(sql2o).upsertAll(samples);
+        } catch (DaoException e) {
+            e.printStackTrace();
         }
+    }
+
+    // Create a Sql2o object drawing its connections from a new pool, and remember the pool for getPoolStats.
+    private static Sql2o createPooledSql2o(String databaseUrl, String poolName, boolean failFast)
+            throws URISyntaxException {
+        HikariDataSource dataSource = createPooledDataSource(databaseUrl, poolName, failFast);
+        Sql2o sql2o = new Sql2o(dataSource);
+        POOLS.put(sql2o, dataSource);
+        return sql2o;
+    }
 
+    // Create a bounded connection pool for the database pointed to by databaseUrl.
+    private static HikariDataSource createPooledDataSource(String databaseUrl, String poolName, boolean failFast)
+            throws URISyntaxException {
         URI dbUri = new URI(databaseUrl);
-        String dbUrl = "jdbc:postgresql://" + dbUri.getHost() + ':'
-                + dbUri.getPort() + dbUri.getPath() + "?sslmode=require";
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setInitializationFailTimeout(failFast ? 1 : -1);
+        config.setJdbcUrl(getJdbcUrl(dbUri));
+        config.setUsername(dbUri.getUserInfo().split(":")[0]);
+        config.setPassword(dbUri.getUserInfo().split(":")[1]);
+        config.setMaximumPoolSize(Env.getInt("DB_POOL_MAX_SIZE", 10));
+        config.setMinimumIdle(Env.getInt("DB_POOL_MIN_IDLE", 2));
+        config.setConnectionTimeout(Env.getLong("DB_POOL_ACQUIRE_TIMEOUT_MS", 5000));
+        config.setIdleTimeout(Env.getLong("DB_POOL_IDLE_TIMEOUT_MS", 600000));
+        config.setMaxLifetime(Env.getLong("DB_POOL_MAX_LIFETIME_MS", 1800000));
+        // Connections idle for more than half a second are validated with Connection#isValid before reuse.
+        config.setValidationTimeout(Env.getLong("DB_POOL_VALIDATION_TIMEOUT_MS", 3000));
+        long statementTimeout = Env.getLong("DB_STATEMENT_TIMEOUT_MS", 0);
+        if (statementTimeout > 0) {
+            config.addDataSourceProperty("options", "-c statement_timeout=" + statementTimeout);
+        }
+        return new HikariDataSource(config);
+    }
 
-        return dbUrl;
+    // Get the JDBC URL of the database pointed to by dbUri.
+    // The driver prepares a statement on the server once it has run DB_PREPARE_THRESHOLD times on a connection, and
+    // keeps it in a per-connection cache; 0 never prepares, e.g. behind a pooler that does not keep sessions.
+    private static String getJdbcUrl(URI dbUri) {
+        return "jdbc:postgresql://" + dbUri.getHost() + ':'
+                + dbUri.getPort() + dbUri.getPath() + "?sslmode=require&reWriteBatchedInserts=true"
+                + "&prepareThreshold=" + Env.getInt("DB_PREPARE_THRESHOLD", 1);
     }
 
-    // Add course to the database connected to the conn object.
-    private static void add(Connection conn, Course course) throws Sql2oException {
-        String sql = "INSERT INTO courses(offeringName, title) VALUES(:offeringName, :title);";
-        conn.createQuery(sql)
-                .bind(course)
-                .executeUpdate();
+    // Create the triggers that notify dao.CourseChangeSubscriber of every statement changing courses, with a version
+    // number and the offeringNames of the courses changed, or null offeringNames when there are too many to list.
+    private static void createChangeNotificationTriggers(Connection conn) {
+        String function = "CREATE OR REPLACE FUNCTION notify_course_changes() RETURNS trigger AS $$\n"
+                + "DECLARE\n"
+                + "    names text[];\n"
+                + "BEGIN\n"
+                + "    IF TG_OP <> 'TRUNCATE' THEN\n"
+                + "        SELECT array_agg(offeringName) INTO names FROM changed_courses;\n"
+                + "        IF names IS NULL THEN\n"
+                + "            RETURN NULL;\n"
+                + "        END IF;\n"
+                + "        IF cardinality(names) > " + MAX_NOTIFIED_COURSES + " THEN\n"
+                + "            names := NULL;\n"
+                + "        END IF;\n"
+                + "    END IF;\n"
+                + "    PERFORM pg_notify('" + CourseChangeSubscriber.CHANNEL + "', json_build_object("
+                + "'version', nextval('courses_change_seq'), 'offeringNames', names)::text);\n"
+                + "    RETURN NULL;\n"
+                + "END;\n"
+                + "$$ LANGUAGE plpgsql;";
+        // Transition tables (changed_courses) can only be declared by triggers for a single event.
+        String[] triggers = {
+            "courses_insert_notify AFTER INSERT ON courses REFERENCING NEW TABLE AS changed_courses",
+            "courses_update_notify AFTER UPDATE ON courses REFERENCING NEW TABLE AS changed_courses",
+            "courses_delete_notify AFTER DELETE ON courses REFERENCING OLD TABLE AS changed_courses",
+            "courses_truncate_notify AFTER TRUNCATE ON courses",
+        };
+        // The statements are run through JDBC since Sql2o would take ':=' and '::text' for parameters.
+        try (Statement statement = conn.getJdbcConnection().createStatement()) {
+            statement.execute("CREATE SEQUENCE IF NOT EXISTS courses_change_seq;");
+            statement.execute(function);
+            for (String trigger : triggers) {
+                statement.execute("DROP TRIGGER IF EXISTS " + trigger.split(" ")[0] + " ON courses;");
+                statement.execute("CREATE TRIGGER " + trigger
+                        + " FOR EACH STATEMENT EXECUTE FUNCTION notify_course_changes();");
+            }
+        } catch (SQLException e) {
+            // The courses still work without the triggers, but other instances are not told about changes.
+            e.printStackTrace();
+        }
+    }
+
+    // Add what dao.Sql2oCourseDao#readChanges reads: the version (the id of the transaction that last wrote the course)
+    // and time of the last write to each course, and a table of tombstones for the deleted courses. The columns are
+    // added to tables created before they existed too.
+    private static void createChangeTracking(Connection conn) {
+        conn.createQuery("ALTER TABLE courses "
+                + "ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT txid_current(), "
+                + "ADD COLUMN IF NOT EXISTS updated_at TIMESTAMPTZ NOT NULL DEFAULT now();").executeUpdate();
+        conn.createQuery("CREATE INDEX IF NOT EXISTS courses_version_idx ON courses (version);").executeUpdate();
+        conn.createQuery("CREATE TABLE IF NOT EXISTS course_tombstones("
+                + "offeringName VARCHAR(15) NOT NULL PRIMARY KEY,"
+                + "version BIGINT NOT NULL DEFAULT txid_current(),"
+                + "deleted_at TIMESTAMPTZ NOT NULL DEFAULT now()"
+                + ");").executeUpdate();
+        conn.createQuery("CREATE INDEX IF NOT EXISTS course_tombstones_version_idx "
+                + "ON course_tombstones (version);").executeUpdate();
+    }
+
+    // Create a trigram index on the title column so that ILIKE '%query%' searches do not scan the whole table.
+    private static void createTitleSearchIndex(Connection conn) {
+        try {
+            conn.createQuery("CREATE EXTENSION IF NOT EXISTS pg_trgm;").executeUpdate();
+            conn.createQuery("CREATE INDEX IF NOT EXISTS courses_title_trgm_idx "
+                    + "ON courses USING GIN (title gin_trgm_ops);").executeUpdate();
+        } catch (Sql2oException e) {
+            // Title search still works without the index, only slower.
+            e.printStackTrace();
+        }
     }
 }
@@ -0,0 +1,64 @@
+package util;
+
+/**
+ * A utility class with methods to read configuration from environment variables.
+ */
+public final class Env {
+
+    private Env() {
+        // This class should not be instantiated.
+    }
+
+    /**
+     * Read a string environment variable.
+     *
+     * @param name the environment variable.
+     * @param defaultValue the value to use when the variable is not set.
+     * @return the value of the variable or defaultValue.
+     */
+    public static String getString(String name, String defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        return value.trim();
+    }
+
+    /**
+     * Read an integer environment variable.
+     *
+     * @param name the environment variable.
+     * @param defaultValue the value to use when the variable is not set.
+     * @return the value of the variable or defaultValue.
+     * @throws NumberFormatException if the variable is set but is not an integer.
+     */
+    public static int getInt(String name, int defaultValue) {
+        String value = getString(name, null);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    /**
+     * Read a long environment variable.
+     *
+     * @param name the environment variable.
+     * @param defaultValue the value to use when the variable is not set.
+     * @return the value of the variable or defaultValue.
+     * @throws NumberFormatException if the variable is set but is not a long.
+     */
+    public static long getLong(String name, long defaultValue) {
+        String value = getString(name, null);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    /**
+     * Read a boolean environment variable.
+     *
+     * @param name the environment variable.
+     * @param defaultValue the value to use when the variable is not set.
+     * @return true if the variable is "true" (ignoring case), false if set to anything else, else defaultValue.
+     */
+    public static boolean getBoolean(String name, boolean defaultValue) {
+        String value = getString(name, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
@@ -0,0 +1,109 @@
+package api;
+
+import com.google.gson.Gson;
+import dao.InMemoryCourseDao;
+import dao.ObservableCourseDao;
+import model.Course;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import util.DataStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CourseListingSnapshotTest {
+    private final Gson gson = new Gson();
+    private ObservableCourseDao courseDao;
+    private CourseListingSnapshot snapshot;
+
+    @BeforeEach
+    void buildSnapshot() {
+        courseDao = new ObservableCourseDao(new InMemoryCourseDao(DataStore.sampleCourses()));
+        snapshot = new CourseListingSnapshot(courseDao, gson, 100);
+        courseDao.addListener(snapshot);
+    }
+
+    @Test
+    @DisplayName("negotiate picks the representation the client prefers, defaulting to JSON")
+    void negotiate() {
+        CourseListingSnapshot.Listing listing = snapshot.get();
+        assertEquals("application/json", listing.negotiate(null, null).getContentType());
+        assertEquals("application/json", listing.negotiate("application/json", null).getContentType());
+        assertEquals("application/json", listing.negotiate("application/cbor, application/json", null)
+                .getContentType());
+        assertEquals("application/cbor", listing.negotiate("application/cbor", null).getContentType());
+        assertEquals("application/cbor", listing.negotiate("application/json;q=0.5, */*", null).getContentType());
+        assertNull(listing.negotiate(null, "gzip;q=0, deflate").getContentEncoding());
+        assertEquals("gzip", listing.negotiate(null, "br, gzip").getContentEncoding());
+        assertEquals("gzip", listing.negotiate(null, "*").getContentEncoding());
+    }
+
+    @Test
+    @DisplayName("every representation is built once, has its own entity tag and decodes to the courses")
+    void variants() throws IOException {
+        CourseListingSnapshot.Listing listing = snapshot.get();
+        CourseListingSnapshot.Variant json = listing.getVariant("application/json", false);
+        CourseListingSnapshot.Variant gzip = listing.getVariant("application/json", true);
+        CourseListingSnapshot.Variant cbor = listing.getVariant("application/cbor", false);
+        CourseListingSnapshot.Variant cborGzip = listing.getVariant("application/cbor", true);
+
+        assertSame(gzip, listing.getVariant("application/json", true));
+        assertSame(cborGzip, listing.getVariant("application/cbor", true));
+        assertEquals(4, List.of(json.getEtag(), gzip.getEtag(), cbor.getEtag(), cborGzip.getEtag()).stream()
+                .distinct().count());
+        assertTrue(cbor.matches("W/" + cbor.getEtag()));
+        assertFalse(cbor.matches(json.getEtag()));
+
+        assertEquals(gson.toJson(DataStore.sampleCourses()), new String(json.getBody(), StandardCharsets.UTF_8));
+        assertArrayEquals(json.getBody(), gunzip(gzip.getBody()));
+        assertArrayEquals(cbor.getBody(), gunzip(cborGzip.getBody()));
+        assertArrayEquals(CourseCbor.encode(DataStore.sampleCourses()), cbor.getBody());
+        assertTrue(cbor.getBody().length < json.getBody().length);
+    }
+
+    @Test
+    @DisplayName("a representation smaller than the threshold is not compressed")
+    void smallListingIsNotCompressed() {
+        snapshot = new CourseListingSnapshot(courseDao, gson, 1 << 20);
+        CourseListingSnapshot.Variant variant = snapshot.get().negotiate(null, "gzip");
+        assertNull(variant.getContentEncoding());
+        assertSame(snapshot.get().getVariant("application/json", false), variant);
+    }
+
+    @Test
+    @DisplayName("the representations are built again after a course changes")
+    void variantsFollowWrites() {
+        CourseListingSnapshot.Variant before = snapshot.get().getVariant("application/cbor", true);
+        courseDao.update("EN.601.226", "Data Structures");
+        CourseListingSnapshot.Variant after = snapshot.get().getVariant("application/cbor", true);
+        assertNotEquals(before.getEtag(), after.getEtag());
+    }
+
+    @Test
+    @DisplayName("courses are encoded as CBOR arrays of maps keyed like their JSON")
+    void encodeCbor() {
+        byte[] expected = {
+                (byte) 0x81, (byte) 0xa2,
+                0x6d, 'O', 'f', 'f', 'e', 'r', 'i', 'n', 'g', ' ', 'N', 'a', 'm', 'e',
+                0x62, 'E', 'N',
+                0x65, 'T', 'i', 't', 'l', 'e',
+                0x78, 0x18, 'A', 'A', 'A', 'A', 'A', 'A', 'A', 'A', 'A', 'A', 'A', 'A',
+                'A', 'A', 'A', 'A', 'A', 'A', 'A', 'A', 'A', 'A', 'A', 'A'
+        };
+        assertArrayEquals(expected, CourseCbor.encode(List.of(new Course("EN", "A".repeat(24)))));
+        assertArrayEquals(new byte[] {(byte) 0x81, (byte) 0xa1, 0x65, 'T', 'i', 't', 'l', 'e', 0x60},
+                CourseCbor.encode(List.of(new Course(null, ""))));
+    }
+
+    private static byte[] gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package api;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadYourWritesTest {
+    private static final long NOW = 1_700_000_000_000L;
+
+    private ReadYourWrites readYourWrites;
+
+    @BeforeEach
+    void injectDependency() {
+        readYourWrites = new ReadYourWrites(true, Duration.ofSeconds(5), "secret");
+    }
+
+    @Test
+    @DisplayName("a cookie set after a write sends reads to the primary until it expires")
+    void cookieExpires() {
+        String cookie = readYourWrites.cookieValue(NOW + 5000);
+        assertTrue(readYourWrites.readPrimary(cookie, NOW));
+        assertTrue(readYourWrites.readPrimary(cookie, NOW + 4999));
+        assertFalse(readYourWrites.readPrimary(cookie, NOW + 5000));
+        assertFalse(readYourWrites.readPrimary(null, NOW));
+    }
+
+    @Test
+    @DisplayName("a cookie made up by the client, e.g. far in the future, is ignored")
+    void forgedCookieIgnored() {
+        assertFalse(readYourWrites.readPrimary("9999999999999", NOW));
+        String cookie = readYourWrites.cookieValue(NOW + 5000);
+        String signature = cookie.substring(cookie.indexOf('.'));
+        assertFalse(readYourWrites.readPrimary("9999999999999" + signature, NOW));
+        assertFalse(readYourWrites.readPrimary(
+                new ReadYourWrites(true, Duration.ofSeconds(5), "other").cookieValue(9999999999999L), NOW));
+        assertFalse(readYourWrites.readPrimary("not a time." + signature, NOW));
+    }
+
+    @Test
+    @DisplayName("instances sharing a secret accept each other's cookies")
+    void sharedSecret() {
+        String cookie = new ReadYourWrites(true, Duration.ofSeconds(5), "secret").cookieValue(NOW + 5000);
+        assertTrue(readYourWrites.readPrimary(cookie, NOW));
+        assertFalse(new ReadYourWrites(true, Duration.ofSeconds(5), null).readPrimary(cookie, NOW));
+    }
+}
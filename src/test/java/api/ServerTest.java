@@ -12,10 +12,12 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import java.net.URISyntaxException;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ServerTest {
 
@@ -145,5 +147,158 @@ class ServerTest {
                 .body(gson.toJson(course)).asJson();
         assertEquals(400, jsonResponse.getStatus());
     }
+
+    @Test
+    public void getPoolStatsWorks() throws UnirestException {
+        final String URL = BASE_URL + "/api/stats/pool";
+        HttpResponse<JsonNode> jsonResponse = Unirest.get(URL).asJson();
+        assertEquals(200, jsonResponse.getStatus());
+        assertTrue(jsonResponse.getBody().getObject().has("active"));
+        assertTrue(jsonResponse.getBody().getObject().has("maxSize"));
+    }
+
+    @Test
+    public void getCacheStatsWorks() throws UnirestException {
+        final String URL = BASE_URL + "/api/stats/cache";
+        HttpResponse<JsonNode> jsonResponse = Unirest.get(URL).asJson();
+        assertEquals(200, jsonResponse.getStatus());
+        assertTrue(jsonResponse.getBody().getObject().has("hits"));
+    }
+
+    @Test
+    public void getCoursesNotModified() throws UnirestException {
+        final String URL = BASE_URL + "/api/courses";
+        HttpResponse<JsonNode> jsonResponse = Unirest.get(URL).asJson();
+        String etag = jsonResponse.getHeaders().getFirst("ETag");
+        assertNotEquals("", etag);
+        HttpResponse<String> response = Unirest.get(URL).header("If-None-Match", etag).asString();
+        assertEquals(304, response.getStatus());
+        response = Unirest.get(URL).header("If-None-Match", "\"stale\"").asString();
+        assertEquals(200, response.getStatus());
+        assertEquals(etag, response.getHeaders().getFirst("ETag"));
+    }
+
+    @Test
+    public void getCoursesAsCbor() throws UnirestException {
+        final String URL = BASE_URL + "/api/courses";
+        HttpResponse<byte[]> response = Unirest.get(URL).header("Accept", "application/cbor").asBytes();
+        assertEquals(200, response.getStatus());
+        assertEquals("application/cbor", response.getHeaders().getFirst("Content-Type"));
+        assertEquals("Accept, Accept-Encoding", response.getHeaders().getFirst("Vary"));
+        assertEquals(0x80, response.getBody()[0] & 0xe0); // a CBOR array
+        String etag = response.getHeaders().getFirst("ETag");
+        assertNotEquals(etag, Unirest.get(URL).asString().getHeaders().getFirst("ETag"));
+        response = Unirest.get(URL).header("Accept", "application/cbor").header("If-None-Match", etag).asBytes();
+        assertEquals(304, response.getStatus());
+    }
+
+    @Test
+    public void getCourseChanges() throws UnirestException {
+        final String URL = BASE_URL + "/api/courses/changes";
+        HttpResponse<JsonNode> jsonResponse = Unirest.get(URL).asJson();
+        assertEquals(200, jsonResponse.getStatus());
+        assertNotEquals(0, jsonResponse.getBody().getObject().getJSONArray("changes").length());
+        long version = jsonResponse.getBody().getObject().getLong("version");
+        jsonResponse = Unirest.get(URL + "?since=" + version).asJson();
+        assertEquals(200, jsonResponse.getStatus());
+        assertTrue(jsonResponse.getBody().getObject().getLong("version") >= version);
+        assertEquals(400, Unirest.get(URL + "?since=-1").asJson().getStatus());
+    }
+
+    @Test
+    public void getCoursesPage() throws UnirestException {
+        final String URL = BASE_URL + "/api/courses?limit=2";
+        HttpResponse<JsonNode> jsonResponse = Unirest.get(URL).asJson();
+        assertEquals(200, jsonResponse.getStatus());
+        assertEquals(2, jsonResponse.getBody().getObject().getJSONArray("courses").length());
+        String next = jsonResponse.getBody().getObject().getString("next");
+        jsonResponse = Unirest.get(URL + "&after=" + next).asJson();
+        assertEquals(200, jsonResponse.getStatus());
+        assertNotEquals(0, jsonResponse.getBody().getObject().getJSONArray("courses").length());
+    }
+
+    @Test
+    public void getCoursesPageWithFields() throws UnirestException {
+        final String URL = BASE_URL + "/api/courses?limit=2&fields=offeringName";
+        HttpResponse<JsonNode> jsonResponse = Unirest.get(URL).asJson();
+        assertEquals(200, jsonResponse.getStatus());
+        assertEquals(2, jsonResponse.getBody().getObject().getJSONArray("courses").length());
+        assertEquals(List.of("Offering Name"), List.copyOf(
+                jsonResponse.getBody().getObject().getJSONArray("courses").getJSONObject(0).keySet()));
+        assertEquals(400, Unirest.get(BASE_URL + "/api/courses?fields=credits").asJson().getStatus());
+    }
+
+    @Test
+    public void getCoursesPageWithInvalidLimit() throws UnirestException {
+        final String URL = BASE_URL + "/api/courses?limit=0";
+        HttpResponse<JsonNode> jsonResponse = Unirest.get(URL).asJson();
+        assertEquals(400, jsonResponse.getStatus());
+    }
+
+    @Test
+    public void getCoursesRankedSearchWithoutIndex() throws UnirestException {
+        // The server runs against the database without change notifications, so it keeps no ranked search index.
+        final String URL = BASE_URL + "/api/courses?q=data%20structres&k=3";
+        HttpResponse<JsonNode> jsonResponse = Unirest.get(URL).asJson();
+        assertEquals(501, jsonResponse.getStatus());
+        assertEquals(400, Unirest.get(BASE_URL + "/api/courses?q=data&k=0").asJson().getStatus());
+    }
+
+    @Test
+    public void getCoursesByIds() throws UnirestException {
+        final String URL = BASE_URL + "/api/courses?ids=EN.601.315,EN.000.999,EN.601.226";
+        HttpResponse<JsonNode> jsonResponse = Unirest.get(URL).asJson();
+        assertEquals(200, jsonResponse.getStatus());
+        assertEquals(2, jsonResponse.getBody().getArray().length());
+        assertEquals("EN.601.315", jsonResponse.getBody().getArray().getJSONObject(0).getString("Offering Name"));
+        assertEquals("EN.601.226", jsonResponse.getBody().getArray().getJSONObject(1).getString("Offering Name"));
+    }
+
+    @Test
+    public void getCoursesSuggestionsWithoutIndex() throws UnirestException {
+        // The server runs against the database without change notifications, so it keeps no suggestion trie.
+        final String URL = BASE_URL + "/api/courses/suggest?prefix=data%20str&limit=5";
+        HttpResponse<JsonNode> jsonResponse = Unirest.get(URL).asJson();
+        assertEquals(501, jsonResponse.getStatus());
+        assertEquals(400, Unirest.get(BASE_URL + "/api/courses/suggest").asJson().getStatus());
+    }
+
+    @Test
+    public void getMetricsWorks() throws UnirestException {
+        Unirest.get(BASE_URL + "/api/courses/EN.601.226").asJson();
+        HttpResponse<String> response = Unirest.get(BASE_URL + "/metrics").asString();
+        assertEquals(200, response.getStatus());
+        assertTrue(response.getHeaders().getFirst("Content-Type").startsWith("text/plain"));
+        assertTrue(response.getBody().contains(
+                "http_requests_total{method=\"GET\",route=\"/api/courses/:offeringName\",status=\"200\"}"));
+        assertTrue(response.getBody().contains("course_dao_duration_seconds_count{method=\"read\"}"));
+        assertTrue(response.getBody().contains("jvm_memory_bytes_used{area=\"heap\"}"));
+    }
+
+    @Test
+    public void postCoursesBatchWorks() throws UnirestException {
+        final String URL = BASE_URL + "/api/courses:batch";
+        List<Object> courses = List.of(
+                new Course("EN.601.433", "Intro Algorithms"),
+                new Course("EN.601.220", "INTERMEDIATE PROGRAMMING"),
+                Map.of("Title", "Made-up Course"));
+        HttpResponse<JsonNode> jsonResponse = Unirest.post(URL)
+                .body(gson.toJson(courses)).asJson();
+        assertEquals(200, jsonResponse.getStatus());
+        assertEquals("created", jsonResponse.getBody().getArray().getJSONObject(0).getString("status"));
+        assertEquals("unchanged", jsonResponse.getBody().getArray().getJSONObject(1).getString("status"));
+        assertEquals("invalid", jsonResponse.getBody().getArray().getJSONObject(2).getString("status"));
+
+        jsonResponse = Unirest.post(URL)
+                .body(gson.toJson(List.of(new Course("EN.601.433", "Introduction to Algorithms")))).asJson();
+        assertEquals("updated", jsonResponse.getBody().getArray().getJSONObject(0).getString("status"));
+    }
+
+    @Test
+    public void postCoursesBatchWithMalformedBody() throws UnirestException {
+        final String URL = BASE_URL + "/api/courses:batch";
+        HttpResponse<JsonNode> jsonResponse = Unirest.post(URL).body("{}").asJson();
+        assertEquals(400, jsonResponse.getStatus());
+    }
 }
 
@@ -0,0 +1,104 @@
+package dao;
+
+import exceptions.DaoException;
+import exceptions.DaoOverloadedException;
+import model.Course;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import util.DataStore;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncCourseDaoTest {
+    private List<Course> samples;
+    private InMemoryCourseDao courseDao;
+    private ThreadPoolExecutor executor;
+    private AsyncCourseDao asyncCourseDao;
+
+    @BeforeEach
+    void injectDependency() {
+        samples = DataStore.sampleCourses();
+        executor = AsyncCourseDao.newBoundedExecutor(1, 1);
+        courseDao = new InMemoryCourseDao(samples);
+        asyncCourseDao = new AsyncCourseDao(courseDao, executor);
+    }
+
+    @AfterEach
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("calls complete with the result of the dao")
+    void callsComplete() throws Exception {
+        assertEquals(samples.get(0), asyncCourseDao.read(samples.get(0).getOfferingName()).get());
+        assertEquals(samples, asyncCourseDao.readAll().get());
+        Course course = asyncCourseDao.read("EN.601.226")
+                .thenCompose(c -> asyncCourseDao.update(c.getOfferingName(), "Data Structures"))
+                .get();
+        assertEquals(new Course("EN.601.226", "Data Structures"), course);
+    }
+
+    @Test
+    @DisplayName("calls fail with the exception of the dao")
+    void callsFail() {
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> {
+            asyncCourseDao.create(samples.get(0).getOfferingName(), "Duplicate").get();
+        });
+        assertTrue(ex.getCause() instanceof DaoException);
+    }
+
+    @Test
+    @DisplayName("calls are rejected once the executor queue is full")
+    void callsRejectedWhenOverloaded() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        running.await();
+        CompletableFuture<Course> queued = asyncCourseDao.read("EN.601.226");
+        CompletableFuture<Course> rejected = asyncCourseDao.read("EN.601.226");
+        ExecutionException ex = assertThrows(ExecutionException.class, rejected::get);
+        assertTrue(ex.getCause() instanceof DaoOverloadedException);
+        release.countDown();
+        assertEquals("EN.601.226", queued.get().getOfferingName());
+    }
+
+    @Test
+    @DisplayName("a call cancelled while it waits in the queue does not run")
+    void cancelledCallsDoNotRun() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        running.await();
+        CompletableFuture<Course> cancelled = asyncCourseDao.delete("EN.601.226");
+        cancelled.cancel(true);
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(cancelled.isCancelled());
+        assertEquals(samples.get(2), courseDao.read("EN.601.226"));
+    }
+}
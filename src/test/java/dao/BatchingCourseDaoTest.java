@@ -0,0 +1,97 @@
+package dao;
+
+import exceptions.DaoException;
+import model.Course;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import util.DataStore;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchingCourseDaoTest {
+    private CountingCourseDao delegate;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void injectDependency() {
+        delegate = new CountingCourseDao(DataStore.sampleCourses());
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("concurrent reads within the window are read in one batch")
+    void concurrentReadsShareOneBatch() throws Exception {
+        BatchingCourseDao courseDao = new BatchingCourseDao(delegate, Duration.ofSeconds(10), 3);
+        CompletableFuture<Course> first = readAsync(courseDao, "EN.601.226");
+        CompletableFuture<Course> second = readAsync(courseDao, "EN.000.999");
+        CompletableFuture<Course> third = readAsync(courseDao, "EN.601.315");
+        assertEquals("EN.601.226", first.get().getOfferingName());
+        assertNull(second.get());
+        assertEquals("EN.601.315", third.get().getOfferingName());
+        assertEquals(1, delegate.batches.size());
+        assertEquals(3, delegate.batches.get(0).size());
+        assertEquals(1L, courseDao.getStats().get("batches"));
+    }
+
+    @Test
+    @DisplayName("a read alone is read once the window is over")
+    void readAloneWaitsForWindow() {
+        BatchingCourseDao courseDao = new BatchingCourseDao(delegate, Duration.ofMillis(1), 100);
+        assertEquals("EN.601.226", courseDao.read("EN.601.226").getOfferingName());
+        assertEquals("EN.601.315", courseDao.read("EN.601.315").getOfferingName());
+        assertEquals(2, delegate.batches.size());
+    }
+
+    @Test
+    @DisplayName("the reads of a batch share the exception of the batch")
+    void readsShareException() {
+        delegate.fail = true;
+        BatchingCourseDao courseDao = new BatchingCourseDao(delegate, Duration.ofSeconds(10), 2);
+        CompletableFuture<Course> first = readAsync(courseDao, "EN.601.226");
+        CompletableFuture<Course> second = readAsync(courseDao, "EN.601.315");
+        ExecutionException ex = assertThrows(ExecutionException.class, first::get);
+        assertTrue(ex.getCause() instanceof DaoException);
+        assertThrows(ExecutionException.class, second::get);
+    }
+
+    private CompletableFuture<Course> readAsync(CourseDao courseDao, String offeringName) {
+        return CompletableFuture.supplyAsync(() -> courseDao.read(offeringName), executor);
+    }
+
+    // An in-memory dao that records the offeringNames of each readMany.
+    private static class CountingCourseDao extends InMemoryCourseDao {
+        private final List<List<String>> batches = new ArrayList<>();
+        private volatile boolean fail;
+
+        CountingCourseDao(List<Course> courses) {
+            super(courses);
+        }
+
+        @Override
+        public List<Course> readMany(Collection<String> offeringNames) throws DaoException {
+            synchronized (batches) {
+                batches.add(new ArrayList<>(offeringNames));
+            }
+            if (fail) {
+                throw new DaoException("Unable to read the courses", null);
+            }
+            return super.readMany(offeringNames);
+        }
+    }
+}
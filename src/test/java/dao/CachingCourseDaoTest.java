@@ -0,0 +1,135 @@
+package dao;
+
+import exceptions.DaoException;
+import model.Course;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingCourseDaoTest {
+    private CountingCourseDao delegate;
+    private CachingCourseDao courseDao;
+
+    @BeforeEach
+    void injectDependency() {
+        delegate = new CountingCourseDao();
+        delegate.create("EN.601.226", "DATA STRUCTURES");
+        delegate.create("EN.601.315", "Databases");
+        delegate.create("EN.601.476", "Machine Learning: Data to Models");
+        courseDao = new CachingCourseDao(delegate, 2, Duration.ofMinutes(1));
+    }
+
+    @Test
+    @DisplayName("read is served from the cache the second time")
+    void readHitsCache() {
+        Course c1 = courseDao.read("EN.601.226");
+        Course c2 = courseDao.read("EN.601.226");
+        assertEquals(c1, c2);
+        assertEquals(1, delegate.reads);
+        assertEquals(1L, courseDao.getStats().get("hits"));
+        assertEquals(1L, courseDao.getStats().get("misses"));
+    }
+
+    @Test
+    @DisplayName("read caches courses that do not exist")
+    void readCachesMissingCourse() {
+        assertNull(courseDao.read("EN.000.999"));
+        assertNull(courseDao.read("EN.000.999"));
+        assertEquals(1, delegate.reads);
+    }
+
+    @Test
+    @DisplayName("readAll is served from the cache the second time")
+    void readAllHitsCache() {
+        assertEquals(3, courseDao.readAll().size());
+        assertEquals(3, courseDao.readAll().size());
+        assertEquals(1, delegate.readAlls);
+    }
+
+    @Test
+    @DisplayName("the least recently used course is evicted when the cache is full")
+    void readEvictsLeastRecentlyUsed() {
+        courseDao.read("EN.601.226");
+        courseDao.read("EN.601.315");
+        courseDao.read("EN.601.226");
+        courseDao.read("EN.601.476");
+        assertEquals(1L, courseDao.getStats().get("evictions"));
+        assertEquals(2L, courseDao.getStats().get("size"));
+        courseDao.read("EN.601.226");
+        assertEquals(3, delegate.reads);
+        courseDao.read("EN.601.315");
+        assertEquals(4, delegate.reads);
+    }
+
+    @Test
+    @DisplayName("expired courses are read again")
+    void readExpires() throws InterruptedException {
+        courseDao = new CachingCourseDao(delegate, 2, Duration.ofMillis(1));
+        courseDao.read("EN.601.226");
+        Thread.sleep(5);
+        courseDao.read("EN.601.226");
+        assertEquals(2, delegate.reads);
+        assertEquals(1L, courseDao.getStats().get("evictions"));
+    }
+
+    @Test
+    @DisplayName("writes invalidate the cached course and listing")
+    void writesInvalidate() {
+        courseDao.read("EN.601.226");
+        courseDao.readAll();
+        courseDao.update("EN.601.226", "Updated Title!");
+        assertEquals("Updated Title!", courseDao.read("EN.601.226").getTitle());
+        assertTrue(courseDao.readAll().contains(new Course("EN.601.226", "Updated Title!")));
+
+        courseDao.create("EN.601.421", "Object-Oriented Software Engineering");
+        assertEquals(4, courseDao.readAll().size());
+
+        courseDao.delete("EN.601.226");
+        assertNull(courseDao.read("EN.601.226"));
+        assertEquals(3, courseDao.readAll().size());
+    }
+
+    @Test
+    @DisplayName("cache misses are read from the loader, writes go to the delegate")
+    void missesReadLoader() {
+        CountingCourseDao loader = new CountingCourseDao();
+        loader.create("EN.601.226", "Data Structures");
+        courseDao = new CachingCourseDao(delegate, loader, 2, Duration.ofMinutes(1));
+        assertEquals("Data Structures", courseDao.read("EN.601.226").getTitle());
+        assertEquals(List.of(new Course("EN.601.226", "Data Structures")),
+                courseDao.readMany(List.of("EN.601.226", "EN.601.315")));
+        assertEquals(1, courseDao.readAll().size());
+        assertEquals(1, loader.reads);
+        assertEquals(1, loader.readAlls);
+        assertEquals(0, delegate.reads);
+        assertEquals(3, courseDao.readAll("data").size());
+
+        courseDao.update("EN.601.226", "Updated Title!");
+        assertEquals("Updated Title!", delegate.read("EN.601.226").getTitle());
+        assertEquals("Data Structures", courseDao.read("EN.601.226").getTitle());
+        assertEquals(2, loader.reads);
+    }
+
+    // A dao.InMemoryCourseDao that counts the reads that reach it.
+    private static class CountingCourseDao extends InMemoryCourseDao {
+        private int reads;
+        private int readAlls;
+
+        @Override
+        public Course read(String offeringName) throws DaoException {
+            reads++;
+            return super.read(offeringName);
+        }
+
+        @Override
+        public List<Course> readAll() throws DaoException {
+            readAlls++;
+            return super.readAll();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package dao;
+
+import exceptions.DaoException;
+import model.Course;
+import model.CourseChange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import util.DataStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactCourseDaoTest {
+    private List<Course> samples;
+    private CompactCourseDao courseDao;
+
+    @BeforeEach
+    void injectDependency() {
+        samples = DataStore.sampleCourses();
+        courseDao = new CompactCourseDao(samples);
+    }
+
+    @Test
+    @DisplayName("the catalog keeps each offering name prefix and each title once")
+    void catalogIsDictionaryEncoded() {
+        CompactCourseCatalog catalog = CompactCourseCatalog.of(samples);
+        assertEquals(8L, catalog.getStats().get("courses"));
+        assertEquals(2L, catalog.getStats().get("prefixes"));
+        assertEquals(7L, catalog.getStats().get("titles"));
+        assertEquals(samples, catalog.asList());
+        assertEquals(2, catalog.indexOf("EN.601.226"));
+        assertEquals(-1, catalog.indexOf("EN.500"));
+        assertEquals(-3, catalog.indexOf("EN.601.221"));
+        assertEquals(-9, catalog.indexOf("EN.601.7"));
+        assertEquals(-9, catalog.indexOf("EN.601.676.1"));
+
+        Course summer = new Course("\u00c9N.1", "\u00c9t\u00e9");
+        Course winter = new Course("EN.\u00e9", "Hiver");
+        catalog = CompactCourseCatalog.of(List.of(summer, winter));
+        assertEquals(List.of(winter, summer), catalog.asList());
+        assertEquals(0, catalog.indexOf("EN.\u00e9"));
+        assertEquals(-2, catalog.indexOf("EN.\u00ea"));
+        assertThrows(DaoException.class, () -> CompactCourseCatalog.of(List.of(new Course("EN.601.226", null))));
+    }
+
+    @Test
+    @DisplayName("reads, pages and title searches go through the catalog and the pending changes")
+    void readsMergeChanges() {
+        assertEquals(samples, courseDao.readAll());
+        courseDao.create("EN.601.421", "Object-Oriented Software Engineering");
+        courseDao.update("EN.601.226", "Data Structures");
+        courseDao.delete("EN.601.220");
+        assertNull(courseDao.read("EN.601.220"));
+        assertNull(courseDao.update("EN.601.220", "Intermediate Programming"));
+        assertThrows(DaoException.class, () -> courseDao.create("EN.601.226", "DATA STRUCTURES"));
+        assertEquals(new Course("EN.601.226", "Data Structures"), courseDao.read("EN.601.226"));
+        assertEquals(List.of(samples.get(3), samples.get(4), samples.get(5)), courseDao.readPage("EN.601.226", 3));
+        assertEquals(List.of(new Course("EN.601.226", "Data Structures"), samples.get(5), samples.get(6),
+                samples.get(7)), courseDao.readAll("data"));
+        assertEquals(List.of(new Course("EN.601.421", "Object-Oriented Software Engineering")),
+                courseDao.readPage("soft", "EN.601.315", 5));
+        assertEquals(8, courseDao.readAll().size());
+        assertEquals(3L, courseDao.getStats().get("pendingChanges"));
+
+        List<Course> before = courseDao.readAll();
+        courseDao.compact();
+        assertEquals(before, courseDao.readAll());
+        assertEquals(0L, courseDao.getStats().get("pendingChanges"));
+        assertEquals(1L, courseDao.getStats().get("compactions"));
+    }
+
+    @Test
+    @DisplayName("the store reads like dao.InMemoryCourseDao after any writes")
+    void readsLikeInMemoryCourseDao() {
+        Random random = new Random(42);
+        InMemoryCourseDao expected = new InMemoryCourseDao(samples);
+        for (int i = 0; i < 2000; i++) {
+            String offeringName = String.format("EN.%d.%03d", 600 + random.nextInt(3), random.nextInt(40));
+            String title = "Course " + random.nextInt(20);
+            switch (random.nextInt(4)) {
+                case 0:
+                    assertEquals(expected.update(offeringName, title), courseDao.update(offeringName, title));
+                    break;
+                case 1:
+                    assertEquals(expected.delete(offeringName), courseDao.delete(offeringName));
+                    break;
+                case 2:
+                    List<Course> batch = List.of(new Course(offeringName, title), new Course("EN.601.226", title));
+                    assertEquals(expected.upsertAll(batch), courseDao.upsertAll(batch));
+                    break;
+                default:
+                    if (expected.read(offeringName) == null) {
+                        assertEquals(expected.create(offeringName, title), courseDao.create(offeringName, title));
+                    }
+            }
+            if (i % 300 == 0) {
+                courseDao.compact();
+            }
+            String after = String.format("EN.601.%03d", random.nextInt(40));
+            assertEquals(expected.readPage("course 1", after, 5), courseDao.readPage("course 1", after, 5));
+            assertEquals(expected.read(offeringName), courseDao.read(offeringName));
+        }
+        assertEquals(expected.readAll(), courseDao.readAll());
+        List<Course> streamed = new ArrayList<>();
+        courseDao.streamAll(streamed::add);
+        assertEquals(expected.readAll(), streamed);
+    }
+
+    @Test
+    @DisplayName("readChanges reads the courses the store was built with, then the ones written since")
+    void readChanges() {
+        CourseChanges all = courseDao.readChanges(0);
+        assertEquals(samples, all.getChanges().stream().map(CourseChange::toCourse).collect(Collectors.toList()));
+        courseDao.update("EN.601.226", "Data Structures");
+        courseDao.delete("EN.601.315");
+        courseDao.compact();
+        CourseChanges changes = courseDao.readChanges(all.getVersion());
+        assertEquals(List.of("EN.601.226", "EN.601.315"), changes.getChanges().stream()
+                .map(CourseChange::getOfferingName).collect(Collectors.toList()));
+        assertTrue(changes.getChanges().get(1).isDeleted());
+        assertEquals(0, courseDao.readChanges(changes.getVersion()).getChanges().size());
+        assertEquals(samples.size(), courseDao.readChanges(0).getChanges().size());
+    }
+}
@@ -0,0 +1,155 @@
+package dao;
+
+import model.Course;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.sql2o.Connection;
+import org.sql2o.Sql2o;
+import util.CourseBulkLoader;
+import util.DataStore;
+import util.Database;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CourseChangeSubscriberTest {
+    private static Sql2o sql2o;
+    private static PGSimpleDataSource dataSource;
+    private CourseDao otherInstance;
+    private CachingCourseDao cachingCourseDao;
+    private CourseChangeSubscriber subscriber;
+    private final Map<String, Optional<Course>> changed = new ConcurrentHashMap<>();
+
+    @BeforeAll
+    static void connectToDatabase() throws URISyntaxException {
+        URI dbUri = new URI(System.getenv("TEST_DATABASE_URL"));
+        String username = dbUri.getUserInfo().split(":")[0];
+        String password = dbUri.getUserInfo().split(":")[1];
+        String dbUrl = "jdbc:postgresql://" + dbUri.getHost() + ':'
+                + dbUri.getPort() + dbUri.getPath() + "?sslmode=require";
+
+        sql2o = new Sql2o(dbUrl, username, password);
+        dataSource = new PGSimpleDataSource();
+        dataSource.setURL(dbUrl);
+        dataSource.setUser(username);
+        dataSource.setPassword(password);
+    }
+
+    @BeforeEach
+    void startSubscriber() {
+        try (Connection conn = sql2o.open()) {
+            conn.createQuery("DROP TABLE IF EXISTS courses;").executeUpdate();
+        }
+        Database.createCoursesTableWithSampleData(sql2o, DataStore.sampleCourses());
+
+        CourseDao store = new Sql2oCourseDao(sql2o);
+        cachingCourseDao = new CachingCourseDao(store, 100, Duration.ofHours(1));
+        ObservableCourseDao courseDao = new ObservableCourseDao(cachingCourseDao);
+        subscriber = new CourseChangeSubscriber(dataSource, store, courseDao, cachingCourseDao);
+        subscriber.start();
+        courseDao.addListener((offeringName, course) -> changed.put(offeringName, Optional.ofNullable(course)));
+        courseDao.addListener(subscriber);
+        otherInstance = new Sql2oCourseDao(sql2o);
+    }
+
+    @AfterEach
+    void stopSubscriber() {
+        subscriber.close();
+    }
+
+    @Test
+    @DisplayName("an update made by another instance reaches the listeners and the cache")
+    void updateFromOtherInstance() {
+        assertEquals("DATA STRUCTURES", cachingCourseDao.read("EN.601.226").getTitle());
+        otherInstance.update("EN.601.226", "Data Structures");
+        waitFor(() -> changed.containsKey("EN.601.226"));
+        assertEquals("Data Structures", changed.get("EN.601.226").orElseThrow().getTitle());
+        assertEquals("Data Structures", cachingCourseDao.read("EN.601.226").getTitle());
+        assertTrue(subscriber.getStats().get("version") > 0);
+    }
+
+    @Test
+    @DisplayName("a delete made by another instance reaches the listeners")
+    void deleteFromOtherInstance() {
+        otherInstance.delete("EN.601.226");
+        waitFor(() -> changed.containsKey("EN.601.226"));
+        assertTrue(changed.get("EN.601.226").isEmpty());
+    }
+
+    @Test
+    @DisplayName("a change to too many courses to list reads everything again")
+    void bulkReloadFromOtherInstance() throws IOException {
+        StringBuilder csv = new StringBuilder("offeringName,title\n");
+        for (int i = 0; i < 150; i++) {
+            csv.append(String.format("EN.999.%03d,Course %d%n", i, i));
+        }
+        long resyncs = subscriber.getStats().get("resyncs");
+        CourseBulkLoader.reloadFromCsv(sql2o, new StringReader(csv.toString()));
+        waitFor(() -> changed.containsKey("EN.999.149") && changed.containsKey("EN.601.226"));
+        assertEquals("Course 149", changed.get("EN.999.149").orElseThrow().getTitle());
+        assertTrue(changed.get("EN.601.226").isEmpty());
+        assertTrue(subscriber.getStats().get("resyncs") > resyncs);
+    }
+
+    @Test
+    @DisplayName("a write through this instance does not wait for the subscriber to read the database")
+    void localWriteDuringRead() throws InterruptedException {
+        subscriber.close();
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CourseDao slowStore = new Sql2oCourseDao(sql2o) {
+            @Override
+            public List<Course> readMany(Collection<String> offeringNames) {
+                reading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.readMany(offeringNames);
+            }
+        };
+        ObservableCourseDao courseDao = new ObservableCourseDao(cachingCourseDao);
+        courseDao.addListener((offeringName, course) -> changed.put(offeringName, Optional.ofNullable(course)));
+        subscriber = new CourseChangeSubscriber(dataSource, slowStore, courseDao, cachingCourseDao);
+        subscriber.start();
+        courseDao.addListener(subscriber);
+
+        otherInstance.update("EN.601.226", "Data Structures");
+        assertTrue(reading.await(10, TimeUnit.SECONDS));
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> courseDao.update("EN.601.226", "DS"));
+        release.countDown();
+        waitFor(() -> subscriber.getStats().get("notifications") >= 2);
+        assertEquals("DS", changed.get("EN.601.226").orElseThrow().getTitle());
+    }
+
+    private static void waitFor(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                fail(ex);
+            }
+        }
+    }
+}
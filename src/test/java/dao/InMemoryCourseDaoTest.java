@@ -0,0 +1,140 @@
+package dao;
+
+import exceptions.DaoException;
+import model.Course;
+import model.CourseChange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import util.DataStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryCourseDaoTest {
+    private List<Course> samples;
+    private CourseDao courseDao;
+
+    @BeforeEach
+    void injectDependency() {
+        samples = DataStore.sampleCourses();
+        courseDao = new InMemoryCourseDao(samples);
+    }
+
+    @Test
+    @DisplayName("create works for valid input")
+    void createNewCourse() {
+        Course c1 = new Course("EN.601.421", "Object-Oriented Software Engineering");
+        Course c2 = courseDao.create(c1.getOfferingName(), c1.getTitle());
+        assertEquals(c1, c2);
+        assertEquals(c1, courseDao.read(c1.getOfferingName()));
+    }
+
+    @Test
+    @DisplayName("create throws exception for duplicate course")
+    void createThrowsExceptionDuplicateData() {
+        assertThrows(DaoException.class, () -> {
+            courseDao.create("EN.500.112", "GATEWAY COMPUTING: JAVA");
+        });
+    }
+
+    @Test
+    @DisplayName("create throws exception for invalid input")
+    void createThrowsExceptionIncompleteData() {
+        assertThrows(DaoException.class, () -> {
+            courseDao.create(null, null);
+        });
+    }
+
+    @Test
+    @DisplayName("read all the courses ordered by offering name")
+    void readAll() {
+        courseDao.create("EN.500.111", "First");
+        List<Course> courses = courseDao.readAll();
+        assertEquals(samples.size() + 1, courses.size());
+        assertEquals("EN.500.111", courses.get(0).getOfferingName());
+    }
+
+    @Test
+    @DisplayName("read all the courses that contain a query string in their title")
+    void readAllGivenTitle() {
+        assertEquals(List.of(samples.get(2), samples.get(5), samples.get(6), samples.get(7)),
+                courseDao.readAll("data"));
+        assertEquals(0, courseDao.readAll("game").size());
+    }
+
+    @Test
+    @DisplayName("read all the courses a page at a time")
+    void readPage() {
+        assertEquals(samples.subList(0, 3), courseDao.readPage(null, 3));
+        assertEquals(samples.subList(3, 6), courseDao.readPage(samples.get(2).getOfferingName(), 3));
+        assertEquals(List.of(samples.get(6), samples.get(7)),
+                courseDao.readPage("machine", samples.get(2).getOfferingName(), 3));
+    }
+
+    @Test
+    @DisplayName("upsertAll creates new courses and updates existing ones")
+    void upsertAll() {
+        List<Course> courses = List.of(
+                new Course("EN.601.421", "Object-Oriented Software Engineering"),
+                new Course("EN.500.112", "Gateway Computing: Java"));
+        assertEquals(List.of(UpsertOutcome.CREATED, UpsertOutcome.UPDATED), courseDao.upsertAll(courses));
+        assertEquals(courses.get(0), courseDao.read("EN.601.421"));
+        assertEquals(courses.get(1), courseDao.read("EN.500.112"));
+
+        courses = List.of(
+                new Course("EN.601.421", "OOSE"),
+                new Course("EN.601.220", "INTERMEDIATE PROGRAMMING"),
+                new Course("EN.601.421", "Object-Oriented Software Engineering"));
+        assertEquals(List.of(UpsertOutcome.UNCHANGED, UpsertOutcome.UNCHANGED, UpsertOutcome.UNCHANGED),
+                courseDao.upsertAll(courses));
+    }
+
+    @Test
+    @DisplayName("update and delete work")
+    void updateAndDeleteWork() {
+        assertEquals("Updated Title!", courseDao.update("EN.500.112", "Updated Title!").getTitle());
+        assertNull(courseDao.update("EN.000.999", "Updated Title!"));
+        assertEquals("Updated Title!", courseDao.delete("EN.500.112").getTitle());
+        assertNull(courseDao.read("EN.500.112"));
+        assertNull(courseDao.delete("EN.500.112"));
+        assertEquals(samples.size() - 1, courseDao.readAll().size());
+    }
+
+    @Test
+    @DisplayName("the courses can be loaded from a snapshot file")
+    void fromSnapshot() throws IOException {
+        Path snapshot = Files.createTempFile("courses", ".json");
+        try {
+            Files.writeString(snapshot, "[{\"Offering Name\":\"EN.601.226\",\"Title\":\"DATA STRUCTURES\"}]");
+            courseDao = InMemoryCourseDao.fromSnapshot(snapshot);
+            assertEquals(List.of(new Course("EN.601.226", "DATA STRUCTURES")), courseDao.readAll());
+        } finally {
+            Files.delete(snapshot);
+        }
+    }
+
+    @Test
+    @DisplayName("readChanges reads the latest change to each course written or deleted since a version")
+    void readChanges() {
+        CourseChanges all = courseDao.readChanges(0);
+        assertEquals(samples.size(), all.getChanges().size());
+        courseDao.update("EN.601.226", "Data Structures");
+        courseDao.delete("EN.601.315");
+        courseDao.update("EN.601.226", "Data Structures II");
+        courseDao.upsertAll(List.of(new Course("EN.500.112", "GATEWAY COMPUTING: JAVA")));
+        CourseChanges changes = courseDao.readChanges(all.getVersion());
+        assertEquals(List.of("EN.601.315", "EN.601.226"), changes.getChanges().stream()
+                .map(CourseChange::getOfferingName).collect(Collectors.toList()));
+        assertTrue(changes.getChanges().get(0).isDeleted());
+        assertEquals(new Course("EN.601.226", "Data Structures II"), changes.getChanges().get(1).toCourse());
+        assertEquals(all.getVersion() + 3, changes.getVersion());
+        assertEquals(0, courseDao.readChanges(changes.getVersion()).getChanges().size());
+        assertEquals(samples.size(), courseDao.readChanges(0).getChanges().size());
+    }
+}
@@ -0,0 +1,111 @@
+package dao;
+
+import exceptions.DaoException;
+import model.Course;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import util.DataStore;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRoutingCourseDaoTest {
+    private ReplicaCourseDao first;
+    private ReplicaCourseDao second;
+    private InMemoryCourseDao primary;
+    private ReplicaRoutingCourseDao courseDao;
+
+    @BeforeEach
+    void injectDependency() {
+        primary = new InMemoryCourseDao(DataStore.sampleCourses());
+        first = new ReplicaCourseDao(DataStore.sampleCourses());
+        second = new ReplicaCourseDao(DataStore.sampleCourses());
+        courseDao = new ReplicaRoutingCourseDao(primary, List.of(first, second), Duration.ofHours(1));
+        courseDao.start();
+    }
+
+    @AfterEach
+    void stopHealthChecks() {
+        courseDao.close();
+    }
+
+    @Test
+    @DisplayName("reads go to the replicas in turn and writes to the primary")
+    void readsGoToReplicas() {
+        courseDao.read("EN.601.226");
+        courseDao.readAll();
+        assertEquals(1, first.reads);
+        assertEquals(1, second.reads);
+        courseDao.update("EN.601.226", "Data Structures");
+        assertEquals("Data Structures", primary.read("EN.601.226").getTitle());
+        assertEquals("DATA STRUCTURES", first.read("EN.601.226").getTitle());
+        assertEquals(2L, courseDao.getStats().get("replicaReads"));
+        assertEquals(0L, courseDao.getStats().get("primaryReads"));
+    }
+
+    @Test
+    @DisplayName("a read fails over from a replica that is down to the next one, then to the primary")
+    void readsFailOver() {
+        first.down = true;
+        assertNotNull(courseDao.read("EN.601.226"));
+        assertEquals(1L, courseDao.getStats().get("failovers"));
+        assertEquals(1L, courseDao.getStats().get("healthyReplicas"));
+        second.down = true;
+        assertNotNull(courseDao.read("EN.601.226"));
+        assertEquals(1L, courseDao.getStats().get("primaryReads"));
+        assertEquals(0L, courseDao.getStats().get("healthyReplicas"));
+    }
+
+    @Test
+    @DisplayName("a replica is back in the rotation once it passes a health check")
+    void healthCheckRestoresReplica() {
+        first.down = true;
+        second.down = true;
+        courseDao.read("EN.601.226");
+        first.down = false;
+        courseDao.checkHealth();
+        assertEquals(1L, courseDao.getStats().get("healthyReplicas"));
+        int reads = first.reads;
+        courseDao.read("EN.601.226");
+        assertEquals(reads + 1, first.reads);
+    }
+
+    // An in-memory dao that counts its reads and fails them while it is down.
+    private static class ReplicaCourseDao extends InMemoryCourseDao {
+        private volatile boolean down;
+        private int reads;
+
+        ReplicaCourseDao(List<Course> courses) {
+            super(courses);
+        }
+
+        @Override
+        public Course read(String offeringName) throws DaoException {
+            check();
+            return super.read(offeringName);
+        }
+
+        @Override
+        public List<Course> readAll() throws DaoException {
+            check();
+            return super.readAll();
+        }
+
+        @Override
+        public List<Course> readPage(String titleQuery, String after, int limit) throws DaoException {
+            check();
+            return super.readPage(titleQuery, after, limit);
+        }
+
+        private void check() {
+            reads++;
+            if (down) {
+                throw new DaoException("The replica is down", null);
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package dao;
+
+import exceptions.DaoException;
+import model.Course;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import util.DataStore;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightCourseDaoTest {
+    private BlockingCourseDao blockingCourseDao;
+    private SingleFlightCourseDao singleFlightCourseDao;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void injectDependency() {
+        blockingCourseDao = new BlockingCourseDao(DataStore.sampleCourses());
+        singleFlightCourseDao = new SingleFlightCourseDao(blockingCourseDao);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("concurrent identical reads share one call")
+    void concurrentReadsShareOneCall() throws Exception {
+        CompletableFuture<Course> first = readAsync("EN.601.226");
+        blockingCourseDao.entered.await();
+        CompletableFuture<Course> second = readAsync("EN.601.226");
+        waitForCoalesced(1);
+        blockingCourseDao.release.countDown();
+        assertEquals("EN.601.226", first.get().getOfferingName());
+        assertSame(first.get(), second.get());
+        assertEquals(1, blockingCourseDao.reads.get());
+    }
+
+    @Test
+    @DisplayName("concurrent identical reads share the exception of the call")
+    void concurrentReadsShareException() throws Exception {
+        blockingCourseDao.fail = true;
+        CompletableFuture<Course> first = readAsync("EN.601.226");
+        blockingCourseDao.entered.await();
+        CompletableFuture<Course> second = readAsync("EN.601.226");
+        waitForCoalesced(1);
+        blockingCourseDao.release.countDown();
+        ExecutionException ex = assertThrows(ExecutionException.class, second::get);
+        assertTrue(ex.getCause() instanceof DaoException);
+        assertThrows(ExecutionException.class, first::get);
+    }
+
+    @Test
+    @DisplayName("reads after a call completes make a new call")
+    void sequentialReadsMakeNewCalls() {
+        blockingCourseDao.release.countDown();
+        singleFlightCourseDao.read("EN.601.226");
+        singleFlightCourseDao.read("EN.601.226");
+        assertEquals(2, blockingCourseDao.reads.get());
+        assertEquals(0, singleFlightCourseDao.getStats().get("coalesced"));
+    }
+
+    @Test
+    @DisplayName("a write makes the next reads start a new call")
+    void writeForgetsCallsInFlight() throws Exception {
+        CompletableFuture<Course> stale = readAsync("EN.601.226");
+        blockingCourseDao.entered.await();
+        singleFlightCourseDao.update("EN.601.226", "Data Structures");
+        CompletableFuture<Course> fresh = readAsync("EN.601.226");
+        blockingCourseDao.release.countDown();
+        stale.get();
+        assertEquals("Data Structures", fresh.get().getTitle());
+        assertEquals(2, blockingCourseDao.reads.get());
+    }
+
+    private CompletableFuture<Course> readAsync(String offeringName) {
+        return CompletableFuture.supplyAsync(() -> singleFlightCourseDao.read(offeringName), executor);
+    }
+
+    private void waitForCoalesced(long count) throws InterruptedException {
+        while (singleFlightCourseDao.getStats().get("coalesced") < count) {
+            Thread.sleep(1);
+        }
+    }
+
+    // An in-memory dao whose reads wait to be released.
+    private static class BlockingCourseDao extends InMemoryCourseDao {
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicInteger reads = new AtomicInteger();
+        private volatile boolean fail;
+
+        BlockingCourseDao(List<Course> courses) {
+            super(courses);
+        }
+
+        @Override
+        public Course read(String offeringName) throws DaoException {
+            Course course = super.read(offeringName);
+            reads.incrementAndGet();
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (fail) {
+                throw new DaoException("Unable to read the course", null);
+            }
+            return course;
+        }
+
+        @Override
+        public Course update(String offeringName, String title) throws DaoException {
+            // InMemoryCourseDao#update reads the course first, which would wait for the release too.
+            Course course = new Course(offeringName, title);
+            upsertAll(List.of(course));
+            return course;
+        }
+    }
+}
@@ -4,17 +4,26 @@ import dao.CourseDao;
 import dao.Sql2oCourseDao;
 import exceptions.DaoException;
 import model.Course;
+import model.CourseChange;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.sql2o.Connection;
 import org.sql2o.Sql2o;
+import util.Database;
 
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -53,18 +62,9 @@ class Sql2oCourseDaoTest {
     void injectDependency() {
         try (Connection conn = sql2o.open()) {
             conn.createQuery("DROP TABLE IF EXISTS courses;").executeUpdate();
-
-            String sql = "CREATE TABLE IF NOT EXISTS courses("
-                    + "offeringName VARCHAR(15) NOT NULL PRIMARY KEY,"
-                    + "title VARCHAR(50) NOT NULL"
-                    + ");";
-            conn.createQuery(sql).executeUpdate();
-
-            sql = "INSERT INTO courses(offeringName, title) VALUES(:offeringName, :title);";
-            for (Course course : samples) {
-                conn.createQuery(sql).bind(course).executeUpdate();
-            }
+            conn.createQuery("DROP TABLE IF EXISTS course_tombstones;").executeUpdate();
         }
+        Database.createCoursesTableWithSampleData(sql2o, samples);
 
         courseDao = new Sql2oCourseDao(sql2o);
     }
@@ -98,6 +98,62 @@ class Sql2oCourseDaoTest {
         });
     }
 
+    @Test
+    @DisplayName("upsertAll creates new courses and updates existing ones")
+    void upsertAll() {
+        List<Course> courses = List.of(
+                new Course("EN.601.421", "Object-Oriented Software Engineering"),
+                new Course("EN.500.112", "Gateway Computing: Java"),
+                new Course("EN.601.421", "OOSE"));
+        List<UpsertOutcome> outcomes = courseDao.upsertAll(courses);
+        assertEquals(List.of(UpsertOutcome.CREATED, UpsertOutcome.UPDATED, UpsertOutcome.CREATED), outcomes);
+        assertEquals(courses.get(1), courseDao.read("EN.500.112"));
+        assertEquals(courses.get(2), courseDao.read("EN.601.421"));
+        assertEquals(samples.size() + 1, courseDao.readAll().size());
+    }
+
+    @Test
+    @DisplayName("upsertAll reports the courses whose title is already the same as unchanged")
+    void upsertAllUnchanged() {
+        long version = courseDao.readChanges(0).getVersion();
+        List<Course> courses = List.of(
+                new Course("EN.601.220", "INTERMEDIATE PROGRAMMING"),
+                new Course("EN.601.226", "Data Structures"),
+                new Course("EN.601.226", "DATA STRUCTURES"));
+        assertEquals(List.of(UpsertOutcome.UNCHANGED, UpsertOutcome.UNCHANGED, UpsertOutcome.UNCHANGED),
+                courseDao.upsertAll(courses));
+        assertEquals(0, courseDao.readChanges(version).getChanges().size());
+    }
+
+    @Test
+    @DisplayName("upsertAll reports a course created by a concurrent transaction as updated")
+    void upsertAllConcurrentCreate() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (Connection open = sql2o.beginTransaction()) {
+            open.createQuery("INSERT INTO courses(offeringName, title) VALUES('EN.601.421', 'OOSE');").executeUpdate();
+            Future<List<UpsertOutcome>> outcomes = executor.submit(() -> courseDao.upsertAll(
+                    List.of(new Course("EN.601.421", "Object-Oriented Software Engineering"))));
+            Thread.sleep(200); // lets the upsert wait on the row being inserted
+            open.commit();
+            assertEquals(List.of(UpsertOutcome.UPDATED), outcomes.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals("Object-Oriented Software Engineering", courseDao.read("EN.601.421").getTitle());
+    }
+
+    @Test
+    @DisplayName("upsertAll writes nothing if a course is invalid")
+    void upsertAllThrowsExceptionIncompleteData() {
+        List<Course> courses = List.of(
+                new Course("EN.601.421", "Object-Oriented Software Engineering"),
+                new Course("EN.601.422", null));
+        assertThrows(DaoException.class, () -> {
+            courseDao.upsertAll(courses);
+        });
+        assertNull(courseDao.read("EN.601.421"));
+    }
+
     @Test
     @DisplayName("read a course given its offering name")
     void readCourseGivenOfferingName() {
@@ -114,6 +170,14 @@ class Sql2oCourseDaoTest {
         assertNull(c1);
     }
 
+    @Test
+    @DisplayName("readMany reads the courses that exist, in the order asked")
+    void readMany() {
+        List<Course> courses = courseDao.readMany(List.of("EN.601.315", "EN.00.999", "EN.500.112", "EN.601.315"));
+        assertIterableEquals(List.of(samples.get(5), samples.get(0)), courses);
+        assertTrue(courseDao.readMany(List.of()).isEmpty());
+    }
+
     @Test
     @DisplayName("read all the courses")
     void readAll() {
@@ -121,6 +185,15 @@ class Sql2oCourseDaoTest {
         assertIterableEquals(samples, courses);
     }
 
+    @Test
+    @DisplayName("stream all the courses")
+    void streamAll() {
+        courseDao = new Sql2oCourseDao(sql2o, 3);
+        List<Course> courses = new ArrayList<>();
+        courseDao.streamAll(courses::add);
+        assertIterableEquals(samples, courses);
+    }
+
     @Test
     @DisplayName("read all the courses that contain a query string in their title")
     void readAllGivenTitle() {
@@ -140,6 +213,56 @@ class Sql2oCourseDaoTest {
         assertEquals(0, courses.size());
     }
 
+    @Test
+    @DisplayName("readAll(query) ignores the case of the query string")
+    void readAllGivenTitleIgnoresCase() {
+        assertEquals(courseDao.readAll("machine learning"), courseDao.readAll("MACHINE LEARNING"));
+        assertEquals(2, courseDao.readAll("mAcHiNe").size());
+    }
+
+    @Test
+    @DisplayName("readAll(query) matches LIKE wildcards literally")
+    void readAllGivenWildcardTitle() {
+        assertEquals(0, courseDao.readAll("%").size());
+        assertEquals(0, courseDao.readAll("_").size());
+    }
+
+    @Test
+    @DisplayName("read all the courses a page at a time")
+    void readPage() {
+        List<Course> courses = new ArrayList<>();
+        List<Course> page = courseDao.readPage(null, 3);
+        while (!page.isEmpty()) {
+            assertTrue(page.size() <= 3);
+            courses.addAll(page);
+            page = courseDao.readPage(page.get(page.size() - 1).getOfferingName(), 3);
+        }
+        assertIterableEquals(samples, courses);
+    }
+
+    @Test
+    @DisplayName("read the courses that contain a query string in their title a page at a time")
+    void readPageGivenTitle() {
+        List<Course> page = courseDao.readPage("data", null, 1);
+        assertEquals(List.of(samples.get(2)), page);
+        page = courseDao.readPage("data", page.get(0).getOfferingName(), 5);
+        assertEquals(List.of(samples.get(5), samples.get(6), samples.get(7)), page);
+    }
+
+    @Test
+    @DisplayName("title searches match the same courses as in dao.InMemoryCourseDao")
+    void titleSearchesMatchInMemoryCourseDao() {
+        CourseDao inMemory = new InMemoryCourseDao(samples);
+        for (String query : List.of("learning machine", "MODELS: data", "data struct", "comput theory", "machine game",
+                ":", "-", "", "%", "_")) {
+            assertEquals(inMemory.readPage(query, null, 100), courseDao.readPage(query, null, 100), query);
+            assertEquals(inMemory.readPage(query, "EN.601.226", 2), courseDao.readPage(query, "EN.601.226", 2), query);
+            assertEquals(new HashSet<>(inMemory.readAll(query)), new HashSet<>(courseDao.readAll(query)), query);
+        }
+        assertEquals(List.of(samples.get(6), samples.get(7)), courseDao.readPage("learning machine", null, 5));
+        assertEquals(List.of(samples.get(0), samples.get(6), samples.get(7)), courseDao.readPage(":", null, 5));
+    }
+
     @Test
     @DisplayName("updating a course works")
     void updateWorks() {
@@ -182,4 +305,43 @@ class Sql2oCourseDaoTest {
         assertNull(c1);
         assertNull(courseDao.delete("EN.000.999"));
     }
+
+    @Test
+    @DisplayName("readChanges reads the courses written and deleted since a version")
+    void readChanges() {
+        CourseChanges all = courseDao.readChanges(0);
+        assertEquals(samples.size(), all.getChanges().size());
+        courseDao.update("EN.601.226", "Data Structures");
+        courseDao.delete("EN.601.315");
+        courseDao.create("EN.601.421", "Object-Oriented Software Engineering");
+        CourseChanges changes = courseDao.readChanges(all.getVersion());
+        assertEquals(List.of(new Course("EN.601.226", "Data Structures"), new Course("EN.601.421",
+                "Object-Oriented Software Engineering")), changes.getChanges().stream()
+                .map(CourseChange::toCourse).filter(Objects::nonNull).collect(Collectors.toList()));
+        assertEquals(List.of("EN.601.315"), changes.getChanges().stream().filter(CourseChange::isDeleted)
+                .map(CourseChange::getOfferingName).collect(Collectors.toList()));
+        assertTrue(changes.getVersion() > all.getVersion());
+        assertEquals(0, courseDao.readChanges(changes.getVersion()).getChanges().size());
+
+        courseDao.create("EN.601.315", "Databases");
+        changes = courseDao.readChanges(all.getVersion());
+        assertEquals(3, changes.getChanges().size());
+        assertTrue(changes.getChanges().stream().noneMatch(CourseChange::isDeleted));
+    }
+
+    @Test
+    @DisplayName("readChanges waits for the writes that started earlier to be committed")
+    void readChangesInCommitOrder() {
+        long version = courseDao.readChanges(0).getVersion();
+        try (Connection open = sql2o.beginTransaction()) {
+            open.createQuery("UPDATE courses SET title = 'Intermediate Programming', version = DEFAULT "
+                    + "WHERE offeringName = 'EN.601.220';").executeUpdate();
+            courseDao.update("EN.601.226", "Data Structures");
+            CourseChanges changes = courseDao.readChanges(version);
+            assertEquals(0, changes.getChanges().size());
+            assertEquals(version, changes.getVersion());
+            open.commit();
+        }
+        assertEquals(2, courseDao.readChanges(version).getChanges().size());
+    }
 }
@@ -0,0 +1,46 @@
+package metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrometheusWriterTest {
+
+    @Test
+    @DisplayName("label values are escaped")
+    void labelsAreEscaped() {
+        assertEquals("route=\"/a\\\"b\\\\\",status=\"200\"",
+                PrometheusWriter.labels("route", "/a\"b\\", "status", "200"));
+    }
+
+    @Test
+    @DisplayName("samples are written with their labels")
+    void writeSamples() {
+        String text = new PrometheusWriter()
+                .family("requests_total", "counter", "Requests.")
+                .sample("requests_total", PrometheusWriter.labels("status", "200"), 3)
+                .sample("requests_total", "", 0.5)
+                .toString();
+        assertEquals("# HELP requests_total Requests.\n# TYPE requests_total counter\n"
+                + "requests_total{status=\"200\"} 3\nrequests_total 0.5\n", text);
+    }
+
+    @Test
+    @DisplayName("histograms are written as cumulative buckets")
+    void writeHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(200));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(20));
+        histogram.record(TimeUnit.SECONDS.toNanos(20));
+        String text = new PrometheusWriter().histogram("latency_seconds", "", histogram).toString();
+        assertTrue(text.contains("latency_seconds_bucket{le=\"5.0E-4\"} 1\n"));
+        assertTrue(text.contains("latency_seconds_bucket{le=\"0.025\"} 2\n"));
+        assertTrue(text.contains("latency_seconds_bucket{le=\"10.0\"} 2\n"));
+        assertTrue(text.contains("latency_seconds_bucket{le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("latency_seconds_sum 20.0202\n"));
+        assertTrue(text.contains("latency_seconds_count 3\n"));
+    }
+}
@@ -0,0 +1,69 @@
+package search;
+
+import dao.InMemoryCourseDao;
+import dao.ObservableCourseDao;
+import model.Course;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import util.DataStore;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CourseSuggesterTest {
+    private List<Course> samples;
+    private ObservableCourseDao courseDao;
+    private CourseSuggester courseSuggester;
+
+    @BeforeEach
+    void buildSuggester() {
+        samples = DataStore.sampleCourses();
+        courseDao = new ObservableCourseDao(new InMemoryCourseDao(samples));
+        courseSuggester = CourseSuggester.build(courseDao);
+        courseDao.addListener(courseSuggester);
+    }
+
+    @Test
+    @DisplayName("suggest completes titles and words of titles, ignoring case")
+    void suggestTitles() {
+        assertEquals(List.of(samples.get(2)), courseSuggester.suggest("Data St", 10));
+        assertEquals(List.of(samples.get(2)), courseSuggester.suggest("struct", 10));
+        assertEquals(List.of(samples.get(6), samples.get(7)), courseSuggester.suggest("machine learning: d", 10));
+        assertEquals(List.of(samples.get(4), samples.get(3), samples.get(0)), courseSuggester.suggest("comput", 10));
+        assertEquals(0, courseSuggester.suggest("structures x", 10).size());
+    }
+
+    @Test
+    @DisplayName("suggest completes offering names and their segments")
+    void suggestOfferingNames() {
+        assertEquals(samples.subList(1, 8), courseSuggester.suggest("EN.601", 10));
+        assertEquals(samples.subList(1, 4), courseSuggester.suggest("601.22", 10));
+        assertEquals(List.of(samples.get(7)), courseSuggester.suggest("676", 10));
+    }
+
+    @Test
+    @DisplayName("suggest returns at most limit courses")
+    void suggestLimit() {
+        assertEquals(samples.subList(1, 4), courseSuggester.suggest("en.601.", 3));
+        assertEquals(3, courseSuggester.suggest("", 3).size());
+    }
+
+    @Test
+    @DisplayName("the trie follows the writes made through the dao")
+    void suggesterFollowsWrites() {
+        courseDao.create("EN.601.421", "Object-Oriented Software Engineering");
+        assertEquals(List.of(new Course("EN.601.421", "Object-Oriented Software Engineering")),
+                courseSuggester.suggest("soft", 10));
+
+        courseDao.update("EN.601.315", "Database Systems");
+        assertEquals(List.of(new Course("EN.601.315", "Database Systems")), courseSuggester.suggest("database ", 10));
+        assertEquals(0, courseSuggester.suggest("databases", 10).size());
+
+        courseDao.delete("EN.601.421");
+        assertEquals(0, courseSuggester.suggest("soft", 10).size());
+        assertEquals(0, courseSuggester.suggest("421", 10).size());
+        assertEquals(List.of(samples.get(0)), courseSuggester.suggest("gateway", 10));
+    }
+}
@@ -0,0 +1,117 @@
+package search;
+
+import dao.InMemoryCourseDao;
+import dao.ObservableCourseDao;
+import model.Course;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import util.DataStore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankedCourseSearchTest {
+    private List<Course> samples;
+    private ObservableCourseDao courseDao;
+    private RankedCourseSearch rankedSearch;
+
+    @BeforeEach
+    void buildIndex() {
+        samples = DataStore.sampleCourses();
+        courseDao = new ObservableCourseDao(new InMemoryCourseDao(samples));
+        rankedSearch = RankedCourseSearch.build(courseDao);
+        courseDao.addListener(rankedSearch);
+    }
+
+    @Test
+    @DisplayName("search puts the best matches first")
+    void searchRanksMatches() {
+        assertEquals(samples.get(2), rankedSearch.search("data structures", 10).get(0));
+        assertEquals(List.of(samples.get(6), samples.get(7)), rankedSearch.search("learning", 10));
+        assertEquals(samples.get(2), rankedSearch.search("601.226", 10).get(0));
+        assertEquals(0, rankedSearch.search("game", 10).size());
+    }
+
+    @Test
+    @DisplayName("search tolerates typos and partial words")
+    void searchIsFuzzy() {
+        assertEquals(samples.get(2), rankedSearch.search("data structres", 10).get(0));
+        assertEquals(samples.get(3), rankedSearch.search("computr systm", 10).get(0));
+        assertEquals(List.of(samples.get(6), samples.get(7)), rankedSearch.search("machin learn", 10));
+    }
+
+    @Test
+    @DisplayName("search returns at most k courses")
+    void searchTopK() {
+        assertEquals(2, rankedSearch.search("data", 2).size());
+        assertEquals(0, rankedSearch.search("data", 0).size());
+    }
+
+    @Test
+    @DisplayName("edit distances are bounded")
+    void editDistance() {
+        assertEquals(0, RankedCourseSearch.editDistance("data", "data", 2));
+        assertEquals(2, RankedCourseSearch.editDistance("structres", "structure", 2));
+        assertEquals(3, RankedCourseSearch.editDistance("data", "models", 2));
+    }
+
+    @Test
+    @DisplayName("the terms within a few edits are found through their bigrams, like by comparing every term")
+    void fuzzyMatchesLikeScan() {
+        Random random = new Random(42);
+        RankedCourseSearch index = RankedCourseSearch.build(new InMemoryCourseDao(List.of()));
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int length = 4 + random.nextInt(6); word.length() < length; ) {
+                word.append("abcde".charAt(random.nextInt(5)));
+            }
+            words.add(word.toString());
+            index.courseChanged(String.valueOf(i), new Course(String.valueOf(i), word.toString()));
+        }
+        List<String> queryTerms = new ArrayList<>(List.of("aaaaaaa")); // too few bigrams to rule any term out
+        for (String word : words.subList(0, 100)) {
+            char[] typo = word.toCharArray();
+            typo[random.nextInt(typo.length)] = 'e';
+            queryTerms.add(new String(typo));
+        }
+        for (String queryTerm : queryTerms) {
+            for (int maxDistance = 1; maxDistance <= 2; maxDistance++) {
+                Map<String, Integer> expected = new HashMap<>();
+                for (String term : words) {
+                    int distance = RankedCourseSearch.editDistance(queryTerm, term, maxDistance);
+                    if (distance > 0 && distance <= maxDistance) {
+                        expected.put(term, distance);
+                    }
+                }
+                assertEquals(expected, index.fuzzyMatches(queryTerm, maxDistance), queryTerm);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("a title repeating a word can be changed")
+    void indexFollowsWritesOfRepeatedWords() {
+        courseDao.create("EN.601.422", "Software Software");
+        courseDao.update("EN.601.422", "Hardware");
+        assertEquals(0, rankedSearch.search("software", 10).size());
+        assertEquals(List.of(new Course("EN.601.422", "Hardware")), rankedSearch.search("hardwre", 10));
+    }
+
+    @Test
+    @DisplayName("the index follows the writes made through the dao")
+    void indexFollowsWrites() {
+        courseDao.create("EN.601.421", "Object-Oriented Software Engineering");
+        assertEquals(List.of(new Course("EN.601.421", "Object-Oriented Software Engineering")),
+                rankedSearch.search("software", 10));
+
+        courseDao.delete("EN.601.421");
+        assertEquals(0, rankedSearch.search("software", 10).size());
+    }
+}
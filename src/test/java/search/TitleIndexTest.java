@@ -0,0 +1,84 @@
+package search;
+
+import dao.InMemoryCourseDao;
+import dao.ObservableCourseDao;
+import model.Course;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import util.DataStore;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TitleIndexTest {
+    private List<Course> samples;
+    private ObservableCourseDao courseDao;
+    private TitleIndex titleIndex;
+
+    @BeforeEach
+    void buildIndex() {
+        samples = DataStore.sampleCourses();
+        courseDao = new ObservableCourseDao(new InMemoryCourseDao(samples));
+        titleIndex = TitleIndex.build(courseDao);
+        courseDao.addListener(titleIndex);
+    }
+
+    @Test
+    @DisplayName("search finds the titles containing the query, ignoring case")
+    void searchIgnoresCase() {
+        assertEquals(List.of(samples.get(2), samples.get(5), samples.get(6), samples.get(7)),
+                titleIndex.search("DaTa", null, 10));
+        assertEquals(List.of(samples.get(0), samples.get(3), samples.get(4)), titleIndex.search("comput", null, 10));
+        assertEquals(List.of(samples.get(1)), titleIndex.search("rog", null, 10));
+        assertEquals(0, titleIndex.search("game", null, 10).size());
+    }
+
+    @Test
+    @DisplayName("search finds the titles containing every term of the query")
+    void searchMultipleTerms() {
+        assertEquals(List.of(samples.get(6), samples.get(7)), titleIndex.search("machine learning", null, 10));
+        assertEquals(List.of(samples.get(6), samples.get(7)), titleIndex.search("models: data", null, 10));
+        assertEquals(0, titleIndex.search("machine structures", null, 10).size());
+    }
+
+    @Test
+    @DisplayName("search returns a page of the courses found")
+    void searchPage() {
+        assertEquals(List.of(samples.get(2), samples.get(5)), titleIndex.search("data", null, 2));
+        assertEquals(List.of(samples.get(6), samples.get(7)),
+                titleIndex.search("data", samples.get(5).getOfferingName(), 2));
+    }
+
+    @Test
+    @DisplayName("search returns every course for an empty query")
+    void searchEmptyQuery() {
+        assertEquals(samples, titleIndex.search("", null, 100));
+    }
+
+    @Test
+    @DisplayName("search finds the titles containing a query without letters or digits as a whole")
+    void searchQueryWithoutTerms() {
+        assertEquals(List.of(samples.get(0), samples.get(6), samples.get(7)), titleIndex.search(":", null, 10));
+        assertEquals(List.of(samples.get(7)), titleIndex.search(": ", samples.get(6).getOfferingName(), 10));
+        assertEquals(0, titleIndex.search("-", null, 10).size());
+        assertEquals(courseDao.readPage(":", null, 10), titleIndex.search(":", null, 10));
+    }
+
+    @Test
+    @DisplayName("the index follows the writes made through the dao")
+    void indexFollowsWrites() {
+        courseDao.create("EN.601.421", "Object-Oriented Software Engineering");
+        assertEquals(List.of(new Course("EN.601.421", "Object-Oriented Software Engineering")),
+                titleIndex.search("software", null, 10));
+
+        courseDao.update("EN.601.315", "Database Systems");
+        assertEquals(List.of(new Course("EN.601.315", "Database Systems")), titleIndex.search("systems", null, 10));
+        assertEquals(0, titleIndex.search("databases", null, 10).size());
+
+        courseDao.delete("EN.601.421");
+        assertEquals(0, titleIndex.search("software", null, 10).size());
+        assertEquals(samples.size(), titleIndex.size());
+    }
+}
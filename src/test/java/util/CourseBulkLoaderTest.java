@@ -0,0 +1,97 @@
+package util;
+
+import dao.CourseDao;
+import dao.Sql2oCourseDao;
+import model.Course;
+import model.CourseChange;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.sql2o.Connection;
+import org.sql2o.Sql2o;
+import org.sql2o.Sql2oException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CourseBulkLoaderTest {
+    private static Sql2o sql2o;
+    private CourseDao courseDao;
+
+    @BeforeAll
+    static void connectToDatabase() throws URISyntaxException {
+        String databaseUrl = System.getenv("TEST_DATABASE_URL");
+        URI dbUri = new URI(databaseUrl);
+
+        String username = dbUri.getUserInfo().split(":")[0];
+        String password = dbUri.getUserInfo().split(":")[1];
+        String dbUrl = "jdbc:postgresql://" + dbUri.getHost() + ':'
+                + dbUri.getPort() + dbUri.getPath() + "?sslmode=require";
+
+        sql2o = new Sql2o(dbUrl, username, password);
+    }
+
+    @BeforeEach
+    void injectDependency() {
+        try (Connection conn = sql2o.open()) {
+            conn.createQuery("DROP TABLE IF EXISTS courses;").executeUpdate();
+        }
+        Database.createCoursesTableWithSampleData(sql2o, DataStore.sampleCourses());
+        courseDao = new Sql2oCourseDao(sql2o);
+    }
+
+    @Test
+    @DisplayName("reloading from CSV replaces all the courses")
+    void reloadFromCsv() throws IOException {
+        String csv = "offeringName,title\n"
+                + "EN.601.226,DATA STRUCTURES\n"
+                + "EN.601.421,\"Object-Oriented Software Engineering, \"\"OOSE\"\"\"\n"
+                + "EN.601.315,Database Systems\n";
+        long version = courseDao.readChanges(0).getVersion();
+        assertEquals(3, CourseBulkLoader.reloadFromCsv(sql2o, new StringReader(csv)));
+        assertEquals(List.of(
+                new Course("EN.601.226", "DATA STRUCTURES"),
+                new Course("EN.601.315", "Database Systems"),
+                new Course("EN.601.421", "Object-Oriented Software Engineering, \"OOSE\"")),
+                courseDao.readPage(null, 10));
+        // The unchanged course is not read again; the six others of the samples are deleted.
+        List<CourseChange> changes = courseDao.readChanges(version).getChanges();
+        assertEquals(8, changes.size());
+        assertEquals(6, changes.stream().filter(CourseChange::isDeleted).count());
+        assertTrue(changes.stream().noneMatch(change -> change.getOfferingName().equals("EN.601.226")));
+    }
+
+    @Test
+    @DisplayName("reloading from NDJSON replaces all the courses, keeping the last of duplicate ones")
+    void reloadFromNdjson() throws IOException {
+        String ndjson = "{\"Offering Name\":\"EN.601.226\",\"Title\":\"DATA STRUCTURES\"}\n"
+                + "\n"
+                + "{\"Offering Name\":\"EN.601.421\",\"Title\":\"OOSE\"}\n"
+                + "{\"Offering Name\":\"EN.601.421\",\"Title\":\"Object-Oriented Software Engineering\"}\n";
+        assertEquals(3, CourseBulkLoader.reloadFromNdjson(sql2o, new BufferedReader(new StringReader(ndjson))));
+        assertEquals(List.of(
+                new Course("EN.601.226", "DATA STRUCTURES"),
+                new Course("EN.601.421", "Object-Oriented Software Engineering")),
+                courseDao.readPage(null, 10));
+    }
+
+    @Test
+    @DisplayName("a failed reload leaves the courses unchanged")
+    void reloadWithIncompleteData() {
+        String csv = "offeringName,title\n"
+                + "EN.601.421,Object-Oriented Software Engineering\n"
+                + "EN.601.422,\n";
+        assertThrows(Sql2oException.class, () -> {
+            CourseBulkLoader.reloadFromCsv(sql2o, new StringReader(csv));
+        });
+        assertEquals(DataStore.sampleCourses().size(), courseDao.readAll().size());
+        assertNull(courseDao.read("EN.601.421"));
+    }
+}